@@ -0,0 +1,103 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessage.AdjacentRef;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.Timestamp;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonMessageSerializerBenchmark {
+
+    private final JacksonMessageSerializer<EntityUpdatedMessage> entityUpdatedSerializer
+            = JacksonMessageSerializer.forType(EntityUpdatedMessage.class);
+    private final JacksonMessageSerializer<ScheduleUpdateMessage> scheduleUpdateSerializer
+            = JacksonMessageSerializer.forType(ScheduleUpdateMessage.class);
+    private final JacksonMessageSerializer<ContentEquivalenceAssertionMessage> assertionSerializer
+            = JacksonMessageSerializer.forType(ContentEquivalenceAssertionMessage.class);
+
+    private EntityUpdatedMessage entityUpdated;
+    private ScheduleUpdateMessage scheduleUpdate;
+    private ContentEquivalenceAssertionMessage assertion;
+
+    private byte[] entityUpdatedBytes;
+    private byte[] scheduleUpdateBytes;
+    private byte[] assertionBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        entityUpdated = new EntityUpdatedMessage("7c4d3b1a-entity", Timestamp.of(1467677805408L),
+                "cbbh", "episode", Publisher.BBC.key());
+
+        DateTime start = new DateTime(1468260900000L, DateTimeZones.UTC);
+        scheduleUpdate = new ScheduleUpdateMessage("7c4d3b1a-schedule", Timestamp.of(1467677805408L),
+                Publisher.PA.key(), "hn4x", start, start.plusHours(6));
+
+        ImmutableList.Builder<AdjacentRef> adjacents = ImmutableList.builder();
+        for (int i = 0; i < 25; i++) {
+            adjacents.add(new AdjacentRef("c" + Integer.toString(i, 36), "episode", Publisher.PA.key()));
+        }
+        assertion = new ContentEquivalenceAssertionMessage("7c4d3b1a-assertion",
+                Timestamp.of(1467677805408L), "cf2", "episode", Publisher.BBC.key(),
+                adjacents.build(), ImmutableSet.of(Publisher.BBC.key(), Publisher.PA.key()));
+
+        entityUpdatedBytes = entityUpdatedSerializer.serialize(entityUpdated);
+        scheduleUpdateBytes = scheduleUpdateSerializer.serialize(scheduleUpdate);
+        assertionBytes = assertionSerializer.serialize(assertion);
+    }
+
+    @Benchmark
+    public byte[] serializeEntityUpdated() throws Exception {
+        return entityUpdatedSerializer.serialize(entityUpdated);
+    }
+
+    @Benchmark
+    public EntityUpdatedMessage deserializeEntityUpdated() throws Exception {
+        return entityUpdatedSerializer.deserialize(entityUpdatedBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeScheduleUpdate() throws Exception {
+        return scheduleUpdateSerializer.serialize(scheduleUpdate);
+    }
+
+    @Benchmark
+    public ScheduleUpdateMessage deserializeScheduleUpdate() throws Exception {
+        return scheduleUpdateSerializer.deserialize(scheduleUpdateBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeAssertion() throws Exception {
+        return assertionSerializer.serialize(assertion);
+    }
+
+    @Benchmark
+    public ContentEquivalenceAssertionMessage deserializeAssertion() throws Exception {
+        return assertionSerializer.deserialize(assertionBytes);
+    }
+
+    @Benchmark
+    public JacksonMessageSerializer<EntityUpdatedMessage> createSerializer() {
+        return JacksonMessageSerializer.forType(EntityUpdatedMessage.class);
+    }
+}
@@ -0,0 +1,147 @@
+package org.atlasapi.persistence.benchmark;
+
+import java.util.List;
+
+import org.atlasapi.media.channel.Channel;
+import org.atlasapi.media.entity.Alias;
+import org.atlasapi.media.entity.Brand;
+import org.atlasapi.media.entity.Broadcast;
+import org.atlasapi.media.entity.ChildRef;
+import org.atlasapi.media.entity.Encoding;
+import org.atlasapi.media.entity.EntityType;
+import org.atlasapi.media.entity.Episode;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Location;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.MediaType;
+import org.atlasapi.media.entity.Policy;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.media.entity.Series;
+import org.atlasapi.media.entity.Version;
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.metabroadcast.common.time.DateTimeZones;
+
+/**
+ * Shared, deterministic fixture content for the benchmarks. Shapes are modelled
+ * on typical broadcaster ingest: brands with a few hundred episodes, episodes
+ * with a broadcast and a couple of on-demand locations each.
+ */
+public final class ContentFixtures {
+
+    public static final DateTime NOW = new DateTime(DateTimeZones.UTC).withTimeAtStartOfDay();
+
+    private ContentFixtures() {
+    }
+
+    public static ImmutableList<Channel> channels(int count) {
+        ImmutableList.Builder<Channel> channels = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            channels.add(new Channel(Publisher.METABROADCAST, "Channel " + i, "channel" + i,
+                    false, MediaType.VIDEO, "http://channels.example.com/" + i));
+        }
+        return channels.build();
+    }
+
+    public static Brand brand(String uri, int childCount) {
+        Brand brand = new Brand(uri, uri, Publisher.BBC);
+        describe(brand, 1L);
+        ImmutableList.Builder<ChildRef> children = ImmutableList.builder();
+        for (int i = 0; i < childCount; i++) {
+            children.add(new ChildRef((long) i, uri + "/episodes/" + i,
+                    String.format("%08d", childCount - i), NOW.minusMinutes(i), EntityType.EPISODE));
+        }
+        brand.setChildRefs(children.build());
+        return brand;
+    }
+
+    public static Series series(String uri, Brand brand) {
+        Series series = new Series(uri, uri, Publisher.BBC);
+        describe(series, 2L);
+        series.withSeriesNumber(3);
+        series.setTotalEpisodes(12);
+        series.setParent(brand);
+        return series;
+    }
+
+    public static Episode episode(String uri, Brand brand, Series series, Channel channel, DateTime start) {
+        Episode episode = new Episode(uri, uri, Publisher.BBC);
+        describe(episode, 3L);
+        episode.setContainer(brand);
+        episode.setSeries(series);
+        episode.setEpisodeNumber(7);
+        episode.setSeriesNumber(3);
+
+        Version version = new Version();
+        version.setCanonicalUri(uri + "/version");
+        version.setDuration(Duration.standardMinutes(30));
+        version.addBroadcast(new Broadcast(channel.getUri(), start, start.plusMinutes(30)));
+
+        Encoding encoding = new Encoding();
+        encoding.addAvailableAt(location(uri + "/location/pc", start));
+        encoding.addAvailableAt(location(uri + "/location/ios", start));
+        version.addManifestedAs(encoding);
+
+        episode.addVersion(version);
+        return episode;
+    }
+
+    /**
+     * Items with one broadcast each, spread round-robin over the given
+     * channels and laid out back to back from {@link #NOW}.
+     */
+    public static List<Item> scheduleBlock(List<Channel> channels, int itemCount) {
+        Brand brand = brand("http://example.com/brands/schedule", 0);
+        Series series = series("http://example.com/series/schedule", brand);
+        ImmutableList.Builder<Item> items = ImmutableList.builder();
+        for (int i = 0; i < itemCount; i++) {
+            Channel channel = channels.get(i % channels.size());
+            DateTime start = NOW.plusMinutes(30 * (i / channels.size()));
+            items.add(episode("http://example.com/episodes/" + i, brand, series, channel, start));
+        }
+        return items.build();
+    }
+
+    public static LookupEntry lookupEntry(String uri, long id, int equivalentCount) {
+        LookupRef self = new LookupRef(uri, id, Publisher.BBC, ContentCategory.CHILD_ITEM);
+        ImmutableSet.Builder<LookupRef> equivs = ImmutableSet.<LookupRef>builder().add(self);
+        for (int i = 1; i <= equivalentCount; i++) {
+            equivs.add(new LookupRef(uri + "/equiv/" + i, id + i, Publisher.PA, ContentCategory.CHILD_ITEM));
+        }
+        ImmutableSet<LookupRef> equivalents = equivs.build();
+        return new LookupEntry(uri, id, self, ImmutableSet.of(uri, uri + "/alias"),
+                ImmutableSet.of(new Alias("example:id", String.valueOf(id))),
+                equivalents, ImmutableSet.of(self), equivalents, NOW, NOW, true);
+    }
+
+    private static void describe(org.atlasapi.media.entity.Content content, long id) {
+        content.setId(id);
+        content.setTitle("A reasonably long programme title " + id);
+        content.setDescription("A description of the kind of length broadcasters usually supply, "
+                + "long enough to make string handling show up in a profile.");
+        content.setGenres(ImmutableSet.of(
+                "http://www.bbc.co.uk/programmes/genres/drama",
+                "http://ref.atlasapi.org/genres/atlas/drama"));
+        content.setImage("http://images.example.com/" + id + ".jpg");
+        content.addAlias(new Alias("example:id", String.valueOf(id)));
+        content.addAliasUrl("http://example.com/alias/" + id);
+        content.setLastUpdated(NOW);
+        content.setFirstSeen(NOW);
+    }
+
+    private static Location location(String uri, DateTime start) {
+        Location location = new Location();
+        location.setUri(uri);
+        location.setAvailable(true);
+        Policy policy = new Policy();
+        policy.setAvailabilityStart(start.plusHours(1));
+        policy.setAvailabilityEnd(start.plusDays(30));
+        location.setPolicy(policy);
+        return location;
+    }
+}
@@ -0,0 +1,52 @@
+package org.atlasapi.persistence.content.schedule.mongo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.channel.Channel;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.ScheduleEntry;
+import org.atlasapi.persistence.benchmark.ContentFixtures;
+import org.atlasapi.persistence.channels.DummyChannelResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleEntryBuilderBenchmark {
+
+    @Param({ "5" })
+    public int channelCount;
+
+    @Param({ "100", "2000" })
+    public int itemCount;
+
+    private ScheduleEntryBuilder builder;
+    private List<Item> items;
+
+    @Setup
+    public void setUp() {
+        List<Channel> channels = ContentFixtures.channels(channelCount);
+        builder = new ScheduleEntryBuilder(new DummyChannelResolver(channels));
+        items = ContentFixtures.scheduleBlock(channels, itemCount);
+    }
+
+    @Benchmark
+    public Map<String, ScheduleEntry> toScheduleEntries() {
+        return builder.toScheduleEntries(items);
+    }
+}
@@ -0,0 +1,79 @@
+package org.atlasapi.persistence.lookup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Measures transitive closure recomputation against an in-memory lookup
+ * store. Each invocation alternates between adding and removing one
+ * neighbour, so every write changes the graph and does the full recompute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitiveLookupWriterBenchmark {
+
+    private static final Set<Publisher> SOURCES = ImmutableSet.of(Publisher.BBC, Publisher.PA);
+
+    @Param({ "5", "50", "140" })
+    public int setSize;
+
+    private TransitiveLookupWriter writer;
+    private String subjectUri;
+    private ImmutableSet<String> allNeighbours;
+    private ImmutableSet<String> allButOneNeighbour;
+    private boolean removeNext;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryLookupEntryStore store = new InMemoryLookupEntryStore();
+        writer = TransitiveLookupWriter.generatedTransitiveLookupWriter(store);
+
+        subjectUri = store(store, "http://example.com/subject", 0L, Publisher.BBC);
+        ImmutableSet.Builder<String> neighbours = ImmutableSet.builder();
+        for (int i = 1; i <= setSize; i++) {
+            neighbours.add(store(store, "http://example.com/equiv/" + i, i, Publisher.PA));
+        }
+        allNeighbours = neighbours.build();
+        allButOneNeighbour = ImmutableSet.copyOf(allNeighbours.asList().subList(0, setSize - 1));
+
+        writer.writeLookup(subjectUri, allNeighbours, SOURCES);
+        removeNext = true;
+    }
+
+    @Benchmark
+    public Optional<Set<LookupEntry>> writeLookup() {
+        Set<String> neighbours = removeNext ? allButOneNeighbour : allNeighbours;
+        removeNext = !removeNext;
+        return writer.writeLookup(subjectUri, neighbours, SOURCES);
+    }
+
+    private String store(InMemoryLookupEntryStore store, String uri, long id, Publisher publisher) {
+        Item item = new Item(uri, uri, publisher);
+        item.setId(id);
+        store.store(LookupEntry.lookupEntryFrom(item));
+        return uri;
+    }
+}
@@ -0,0 +1,52 @@
+package org.atlasapi.persistence.lookup.mongo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.persistence.benchmark.ContentFixtures;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.DBObject;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupEntryTranslatorBenchmark {
+
+    @Param({ "1", "20", "150" })
+    public int equivalentCount;
+
+    private final LookupEntryTranslator translator = new LookupEntryTranslator();
+
+    private LookupEntry entry;
+    private DBObject dbo;
+
+    @Setup
+    public void setUp() {
+        entry = ContentFixtures.lookupEntry("http://example.com/episodes/1", 1000L, equivalentCount);
+        dbo = translator.toDbo(entry);
+    }
+
+    @Benchmark
+    public DBObject toDbo() {
+        return translator.toDbo(entry);
+    }
+
+    @Benchmark
+    public LookupEntry fromDbo() {
+        return translator.fromDbo(dbo);
+    }
+}
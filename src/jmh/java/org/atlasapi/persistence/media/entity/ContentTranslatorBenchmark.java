@@ -0,0 +1,116 @@
+package org.atlasapi.persistence.media.entity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.channel.Channel;
+import org.atlasapi.media.entity.Brand;
+import org.atlasapi.media.entity.ChildRef;
+import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Series;
+import org.atlasapi.persistence.benchmark.ContentFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Round trips through the item and container translators, plus the hashing
+ * and child ref de-duplication done on every content write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentTranslatorBenchmark {
+
+    @Param({ "10", "500" })
+    public int childCount;
+
+    private final ItemTranslator itemTranslator = new ItemTranslator(new SubstitutionTableNumberCodec());
+    private final ContainerTranslator containerTranslator = new ContainerTranslator(new SubstitutionTableNumberCodec());
+
+    private Item item;
+    private Brand brand;
+    private Series series;
+    private DBObject itemDbo;
+    private DBObject brandDbo;
+    private List<ChildRef> duplicatedChildRefs;
+
+    @Setup
+    public void setUp() {
+        Channel channel = ContentFixtures.channels(1).get(0);
+        brand = ContentFixtures.brand("http://example.com/brands/1", childCount);
+        series = ContentFixtures.series("http://example.com/series/1", brand);
+        item = ContentFixtures.episode("http://example.com/episodes/1", brand, series, channel, ContentFixtures.NOW);
+
+        itemDbo = itemTranslator.toDB(item);
+        brandDbo = containerTranslator.toDBO(brand, true);
+
+        duplicatedChildRefs = ImmutableList.<ChildRef>builder()
+                .addAll(brand.getChildRefs())
+                .addAll(brand.getChildRefs().subList(0, childCount / 2))
+                .build();
+    }
+
+    @Benchmark
+    public DBObject itemToDbo() {
+        return itemTranslator.toDB(item);
+    }
+
+    @Benchmark
+    public Item itemFromDbo() {
+        return itemTranslator.fromDBObject(copy(itemDbo), null);
+    }
+
+    @Benchmark
+    public String itemHashCode() {
+        return itemTranslator.hashCodeOf(item);
+    }
+
+    @Benchmark
+    public DBObject containerToDbo() {
+        return containerTranslator.toDBO(brand, true);
+    }
+
+    @Benchmark
+    public Container containerFromDbo() {
+        return containerTranslator.fromDBObject(copy(brandDbo), null);
+    }
+
+    @Benchmark
+    public String containerHashCodeIncludingChildren() {
+        return containerTranslator.hashCodeOf(brand, true);
+    }
+
+    @Benchmark
+    public String seriesHashCode() {
+        return containerTranslator.hashCodeOf(series);
+    }
+
+    @Benchmark
+    public List<ChildRef> dedupeAndSortChildRefs() {
+        return ChildRef.dedupeAndSort(duplicatedChildRefs);
+    }
+
+    // fromDBObject strips hash-excluded fields from the dbo it is given, so
+    // each invocation works on its own copy.
+    private DBObject copy(DBObject dbo) {
+        return new BasicDBObject(dbo.toMap());
+    }
+}
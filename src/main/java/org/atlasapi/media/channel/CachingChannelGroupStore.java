@@ -1,103 +1,203 @@
 package org.atlasapi.media.channel;
 
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.StreamSupport;
-
-import com.metabroadcast.common.stream.MoreCollectors;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.base.Optional;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Serves channel group reads from an in-memory {@link ChannelGroupSnapshot} of
+ * every group, reloaded from the delegate once it is older than the refresh
+ * interval. The reload happens on the reading thread; while it runs, other
+ * readers keep using the previous snapshot. Writes through this store are
+ * applied to the snapshot immediately.
+ *
+ * A group missing from the snapshot, such as one created by another process
+ * since the last reload, is looked up in the delegate and added to the
+ * snapshot if found. Groups resolved by id, uri or alias are copies, so callers
+ * may modify them without affecting other readers.
+ */
 public class CachingChannelGroupStore implements ChannelGroupStore {
 
-    private final LoadingCache<Long, Optional<ChannelGroup>> groupsByIdCache = 
-            CacheBuilder.newBuilder()
-                        .expireAfterWrite(5, TimeUnit.MINUTES)
-                        .maximumSize(500)
-                        .build(new CacheLoader<Long, Optional<ChannelGroup>>() {
-
-                            @Override
-                            public Optional<ChannelGroup> load(Long key) throws Exception {
-                                return delegate.channelGroupFor(key);
-                            }
-                            
-                            @Override
-                            public Map<Long, Optional<ChannelGroup>> loadAll(
-                                    Iterable<? extends Long> keys
-                            ) {
-                                return StreamSupport.stream(
-                                        delegate.channelGroupsFor(keys).spliterator(), false
-                                ).collect(MoreCollectors.toImmutableMap(
-                                        ChannelGroup::getId,
-                                        Optional::of
-                                ));
-                            }
-                            
-                        });
-    
+    private static final Logger log = LoggerFactory.getLogger(CachingChannelGroupStore.class);
+    private static final long DEFAULT_REFRESH_MINUTES = 5;
+
     private final ChannelGroupStore delegate;
+    private final long refreshIntervalNanos;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile ChannelGroupSnapshot snapshot;
+    private volatile long loadedAt;
 
     public CachingChannelGroupStore(ChannelGroupStore delegate) {
+        this(delegate, DEFAULT_REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public CachingChannelGroupStore(ChannelGroupStore delegate, long refreshInterval, TimeUnit unit) {
         this.delegate = checkNotNull(delegate);
+        this.refreshIntervalNanos = unit.toNanos(refreshInterval);
     }
     
     @Override
     public Optional<ChannelGroup> fromAlias(String alias) {
-        return delegate.fromAlias(alias);
+        ImmutableList<ChannelGroup> groups = snapshot().forAlias(alias);
+        if (groups.isEmpty()) {
+            return Optional.absent();
+        }
+        return Optional.of(Iterables.getOnlyElement(groups));
     }
 
     @Override
     public Optional<ChannelGroup> channelGroupFor(Long id) {
-        try {
-            return groupsByIdCache.get(id);
-        } catch (ExecutionException e) {
-            throw new IllegalStateException(e);
+        ChannelGroup cached = snapshot().forId(id);
+        if (cached != null) {
+            return Optional.of(cached);
         }
+        Optional<ChannelGroup> group = delegate.channelGroupFor(id);
+        if (group.isPresent()) {
+            apply(group.asSet(), ImmutableList.of());
+        }
+        return group;
     }
 
     @Override
     public void invalidateCache(Long id) {
-        groupsByIdCache.invalidate(id);
+        Optional<ChannelGroup> group = delegate.channelGroupFor(id);
+        if (group.isPresent()) {
+            apply(ImmutableList.of(group.get()), ImmutableList.of());
+        } else {
+            apply(ImmutableList.of(), ImmutableList.of(id));
+        }
     }
 
     @Override
     public Iterable<ChannelGroup> channelGroupsFor(Iterable<? extends Long> ids) {
-        try {
-            return Optional.presentInstances(groupsByIdCache.getAll(ids).values());
-        } catch (ExecutionException e) {
-            throw new IllegalStateException(e);
+        ChannelGroupSnapshot current = snapshot();
+        ImmutableList<ChannelGroup> cached = current.forIds(ids);
+        Set<Long> missing = Sets.newLinkedHashSet(ids);
+        for (ChannelGroup group : cached) {
+            missing.remove(group.getId());
+        }
+        if (missing.isEmpty()) {
+            return cached;
         }
+        Map<Long, ChannelGroup> found = Maps.newHashMap();
+        for (ChannelGroup group : cached) {
+            found.put(group.getId(), group);
+        }
+        ImmutableList<ChannelGroup> loaded = ImmutableList.copyOf(delegate.channelGroupsFor(missing));
+        apply(loaded, ImmutableList.of());
+        for (ChannelGroup group : loaded) {
+            found.put(group.getId(), group);
+        }
+        ImmutableList.Builder<ChannelGroup> groups = ImmutableList.builder();
+        for (Long id : ImmutableSet.copyOf(ids)) {
+            ChannelGroup group = found.get(id);
+            if (group != null) {
+                groups.add(group);
+            }
+        }
+        return groups.build();
     }
 
     @Override
     public Iterable<ChannelGroup> channelGroups() {
-        return delegate.channelGroups();
+        return snapshot().all();
     }
 
     @Override
     public Iterable<ChannelGroup> channelGroupsFor(Channel channel) {
-        return delegate.channelGroupsFor(channel);
+        if (channel.getId() == null) {
+            return ImmutableList.of();
+        }
+        return snapshot().forChannel(channel.getId());
+    }
+
+    @Override
+    public Iterable<Region> regionsFor(Long platformId) {
+        return snapshot().regionsFor(platformId);
     }
 
     @Override
     public ChannelGroup createOrUpdate(ChannelGroup channelGroup) {
-        return delegate.createOrUpdate(channelGroup);
+        ChannelGroup written = delegate.createOrUpdate(channelGroup);
+        ImmutableSet.Builder<ChannelGroup> changed = ImmutableSet.builder();
+        changed.add(written);
+        if (written instanceof Region && ((Region) written).getPlatform() != null) {
+            changed.addAll(delegate.channelGroupFor(((Region) written).getPlatform()).asSet());
+        }
+        apply(changed.build(), ImmutableList.of());
+        return written;
     }
 
     @Override
     public Optional<ChannelGroup> channelGroupFor(String canonicalUri) {
-        return delegate.channelGroupFor(canonicalUri);
+        ChannelGroup cached = snapshot().forUri(canonicalUri);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<ChannelGroup> group = delegate.channelGroupFor(canonicalUri);
+        if (group.isPresent()) {
+            apply(group.asSet(), ImmutableList.of());
+        }
+        return group;
     }
 
     @Override
     public void deleteChannelGroupById(long channelGroupId) {
         delegate.deleteChannelGroupById(channelGroupId);
+        apply(ImmutableList.of(), ImmutableList.of(channelGroupId));
     }
 
+    private void apply(Iterable<ChannelGroup> updated, Iterable<Long> removed) {
+        reloadLock.lock();
+        try {
+            if (snapshot != null) {
+                snapshot = snapshot.withChanges(updated, removed);
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private ChannelGroupSnapshot snapshot() {
+        ChannelGroupSnapshot current = snapshot;
+        if (current == null) {
+            reloadLock.lock();
+            try {
+                if (snapshot == null) {
+                    reload();
+                }
+                return snapshot;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        if (System.nanoTime() - loadedAt > refreshIntervalNanos && reloadLock.tryLock()) {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.error("Channel group reload failed, serving previous snapshot", e);
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private void reload() {
+        snapshot = new ChannelGroupSnapshot(ImmutableList.copyOf(delegate.channelGroups()));
+        loadedAt = System.nanoTime();
+    }
 }
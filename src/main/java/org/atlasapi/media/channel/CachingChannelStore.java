@@ -2,46 +2,140 @@ package org.atlasapi.media.channel;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.metabroadcast.common.base.Maybe;
-import com.metabroadcast.common.caching.BackgroundComputingValue;
 import com.metabroadcast.common.stream.MoreCollectors;
+import com.metabroadcast.common.time.Clock;
+import com.metabroadcast.common.time.SystemClock;
+import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.Callable;
-
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * Serves channel reads from an in-memory {@link ChannelSnapshot}.
+ *
+ * <p>The snapshot is patched every {@code deltaInterval} with channels updated
+ * since the previous load or patch was queried, less a small overlap to allow
+ * for writers whose clocks or commits lag. Deleted channels and changes that
+ * don't touch last-updated, such as parent variation lists, are picked up by a
+ * full reload every {@code fullInterval}. Writes through this store are applied
+ * to the snapshot immediately, and are kept by a reload that was already
+ * reading when they were made.</p>
+ */
 public class CachingChannelStore extends BaseChannelStore implements ServiceChannelStore {
 
+    private static final Duration DEFAULT_DELTA_INTERVAL = Duration.standardSeconds(10);
+    private static final Duration DEFAULT_FULL_INTERVAL = Duration.standardMinutes(5);
+    private static final Duration DELTA_OVERLAP = Duration.standardMinutes(1);
+
     private final ChannelStore delegate;
-    private final BackgroundComputingValue<List<Channel>> channels;
+    private final Duration deltaInterval;
+    private final Duration fullInterval;
+    private final Clock clock;
+    private final AtomicReference<ChannelSnapshot> channels =
+            new AtomicReference<>(new ChannelSnapshot(ImmutableList.of()));
+
+    private final Object updateLock = new Object();
+    // channels applied since the running reload began reading, if one is running
+    @Nullable private List<Channel> updatedDuringReload;
+    @Nullable private volatile DateTime updatedSince;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("caching-channel-store-%d")
+                    .setDaemon(true)
+                    .build()
+    );
 
     public CachingChannelStore(ChannelStore delegate) {
+        this(delegate, DEFAULT_DELTA_INTERVAL, DEFAULT_FULL_INTERVAL);
+    }
+
+    public CachingChannelStore(ChannelStore delegate, Duration deltaInterval, Duration fullInterval) {
+        this(delegate, deltaInterval, fullInterval, new SystemClock());
+    }
+
+    public CachingChannelStore(ChannelStore delegate, Duration deltaInterval, Duration fullInterval,
+            Clock clock) {
         this.delegate = delegate;
-        channels = new BackgroundComputingValue<>(
-                Duration.standardMinutes(5),
-                new ChannelsUpdater(delegate)
-        );
+        this.deltaInterval = deltaInterval;
+        this.fullInterval = fullInterval;
+        this.clock = clock;
     }
+
     @Override
     public void start() {
-        channels.start();
+        refreshCache();
+        executor.scheduleWithFixedDelay(
+                this::applyUpdates,
+                deltaInterval.getMillis(),
+                deltaInterval.getMillis(),
+                TimeUnit.MILLISECONDS
+        );
+        executor.scheduleWithFixedDelay(
+                this::reload,
+                fullInterval.getMillis(),
+                fullInterval.getMillis(),
+                TimeUnit.MILLISECONDS
+        );
     }
 
     @Override
     public void shutdown() {
-        channels.shutdown();
+        executor.shutdownNow();
     }
 
     @Override
     public Channel createOrUpdate(Channel channel) {
-        return delegate.createOrUpdate(channel);
+        Channel written = delegate.createOrUpdate(channel);
+        writeThrough(ImmutableList.of(written));
+        return written;
+    }
+
+    @Override
+    public List<Channel> createOrUpdateAll(Iterable<Channel> channels) {
+        List<Channel> written = delegate.createOrUpdateAll(channels);
+        writeThrough(written);
+        return written;
+    }
+
+    private void writeThrough(List<Channel> written) {
+        ImmutableList.Builder<Channel> changed = ImmutableList.builder();
+        changed.addAll(written);
+        Set<Long> parents = written.stream()
+                .map(Channel::getParent)
+                .filter(Objects::nonNull)
+                .collect(MoreCollectors.toImmutableSet());
+        if (!parents.isEmpty()) {
+            changed.addAll(delegate.forIds(parents));
+        }
+        apply(changed.build());
+    }
+
+    private void apply(List<Channel> updates) {
+        synchronized (updateLock) {
+            channels.updateAndGet(snapshot -> snapshot.withUpdates(updates));
+            if (updatedDuringReload != null) {
+                updatedDuringReload.addAll(updates);
+            }
+        }
     }
 
     @Deprecated
     @Override
     public Maybe<Channel> fromKey(String key) {
-        for (Channel channel : channels.get()) {
+        for (Channel channel : channels.get().all()) {
             if (Objects.equals(channel.getKey(), key)) {
                 return Maybe.just(channel);
             }
@@ -52,28 +146,31 @@ public class CachingChannelStore extends BaseChannelStore implements ServiceChan
     @SuppressWarnings("deprecation")    // specified by interface
     @Override
     public Maybe<Channel> fromId(long id) {
-        for (Channel channel : channels.get()) {
-            if (channel.getId().equals(id)) { 
-                return Maybe.just(channel);
-            }
-        }
-        return Maybe.nothing();
+        return Maybe.fromPossibleNullValue(channels.get().forId(id));
     }
 
     @SuppressWarnings("deprecation")    // specified by interface
     @Override
     public Maybe<Channel> fromUri(String uri) {
-        for (Channel channel : channels.get()) {
-            if (channel.getUri().equals(uri)) { 
-                return Maybe.just(channel);
+        return Maybe.fromPossibleNullValue(channels.get().forUri(uri));
+    }
+
+    @Override
+    public Map<String, Channel> forUris(Iterable<String> uris) {
+        ChannelSnapshot snapshot = channels.get();
+        Map<String, Channel> resolved = new HashMap<>();
+        for (String uri : uris) {
+            Channel channel = snapshot.forUri(uri);
+            if (channel != null) {
+                resolved.put(uri, channel);
             }
         }
-        return Maybe.nothing();
+        return resolved;
     }
 
     @Override
     public Iterable<Channel> forIds(final Iterable<Long> ids) {
-        return channels.get()
+        return channels.get().all()
                 .stream()
                 .filter(input -> Iterables.contains(ids, input.getId()))
                 .collect(MoreCollectors.toImmutableList());
@@ -81,18 +178,18 @@ public class CachingChannelStore extends BaseChannelStore implements ServiceChan
 
     @Override
     public Iterable<Channel> all() {
-        return channels.get();
+        return channels.get().all();
     }
 
     @Override
     public Iterable<Channel> allChannels(ChannelQuery query) {
-        return delegate.allChannels(query);
+        return channels.get().query(query);
     }
 
     @SuppressWarnings("deprecation")    // specified by interface
     @Override
     public Maybe<Channel> forAlias(String alias) {
-        for (Channel channel : channels.get()) {
+        for (Channel channel : channels.get().all()) {
             if (channel.getAliasUrls().contains(alias)) { 
                 return Maybe.just(channel);
             }
@@ -102,7 +199,22 @@ public class CachingChannelStore extends BaseChannelStore implements ServiceChan
 
     @Override
     public void refreshCache() {
-        channels.refreshCache();
+        synchronized (updateLock) {
+            updatedDuringReload = new ArrayList<>();
+        }
+        DateTime started = clock.now();
+        try {
+            ChannelSnapshot reloaded = new ChannelSnapshot(ImmutableList.copyOf(delegate.all()));
+            synchronized (updateLock) {
+                // the reload may have read channels from before these were applied
+                channels.set(reloaded.withUpdates(updatedDuringReload));
+                updatedSince = started.minus(DELTA_OVERLAP);
+            }
+        } finally {
+            synchronized (updateLock) {
+                updatedDuringReload = null;
+            }
+        }
     }
 
     // this method fetches channels by its aliases that are stored as ids in Mongo
@@ -111,17 +223,27 @@ public class CachingChannelStore extends BaseChannelStore implements ServiceChan
         return delegate.forKeyPairAlias(channelQuery);
     }
 
-    private static class ChannelsUpdater implements Callable<List<Channel>> {
-        private final ChannelResolver delegate;
-        
-        public ChannelsUpdater(ChannelResolver delegate) {
-            this.delegate = delegate;
+    private void reload() {
+        try {
+            refreshCache();
+        } catch (RuntimeException e) {
+            log.error("Full channel reload failed", e);
         }
+    }
 
-        @Override
-        public List<Channel> call() throws Exception {
-            return ImmutableList.copyOf(delegate.all());
+    void applyUpdates() {
+        try {
+            DateTime since = updatedSince;
+            if (since == null) {
+                return;
+            }
+            // measured from when we queried rather than from the channels' own
+            // last-updated times, so a channel dated in the future can't pin it
+            DateTime queried = clock.now();
+            apply(ImmutableList.copyOf(delegate.updatedSince(since)));
+            updatedSince = queried.minus(DELTA_OVERLAP);
+        } catch (RuntimeException e) {
+            log.error("Channel delta refresh failed", e);
         }
-        
     }
 }
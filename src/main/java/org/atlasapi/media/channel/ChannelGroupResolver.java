@@ -1,6 +1,8 @@
 package org.atlasapi.media.channel;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 public interface ChannelGroupResolver {
     
@@ -18,4 +20,19 @@ public interface ChannelGroupResolver {
      
      Iterable<ChannelGroup> channelGroupsFor(Channel channel);
 
+     /**
+      * The regions of the platform with the given id, or none if there is no
+      * such platform.
+      */
+     default Iterable<Region> regionsFor(Long platformId) {
+         Optional<ChannelGroup> platform = channelGroupFor(platformId);
+         if (!platform.isPresent() || !(platform.get() instanceof Platform)) {
+             return ImmutableList.of();
+         }
+         return Iterables.filter(
+                 channelGroupsFor(((Platform) platform.get()).getRegions()),
+                 Region.class
+         );
+     }
+
 }
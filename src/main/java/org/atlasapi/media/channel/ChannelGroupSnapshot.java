@@ -0,0 +1,145 @@
+package org.atlasapi.media.channel;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * An immutable view of all channel groups, ordered by id, with lookups by id,
+ * uri and alias, and reverse indexes from channel id to the groups numbering
+ * it and from platform id to its regions.
+ *
+ * Groups looked up by id, uri or alias are handed out as copies, since callers
+ * such as channel numbering updates modify the groups they resolve. Groups
+ * passed to {@link #withChanges(Iterable, Iterable)} are copied in, so that the
+ * writer's instance is not shared either.
+ */
+final class ChannelGroupSnapshot {
+
+    private static final ChannelGroupTranslator translator = new ChannelGroupTranslator();
+
+    private final ImmutableMap<Long, ChannelGroup> byId;
+    private final ImmutableMap<String, ChannelGroup> byUri;
+    private final ImmutableListMultimap<String, ChannelGroup> byAlias;
+    private final ImmutableListMultimap<Long, ChannelGroup> byChannel;
+    private final ImmutableListMultimap<Long, Region> regionsByPlatform;
+
+    ChannelGroupSnapshot(Iterable<? extends ChannelGroup> groups) {
+        Map<Long, ChannelGroup> sorted = new TreeMap<>();
+        for (ChannelGroup group : groups) {
+            sorted.put(group.getId(), group);
+        }
+        this.byId = ImmutableMap.copyOf(sorted);
+
+        Map<String, ChannelGroup> byUri = new TreeMap<>();
+        ImmutableListMultimap.Builder<String, ChannelGroup> byAlias = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<Long, ChannelGroup> byChannel = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<Long, Region> regionsByPlatform = ImmutableListMultimap.builder();
+        for (ChannelGroup group : byId.values()) {
+            if (group.getCanonicalUri() != null) {
+                byUri.putIfAbsent(group.getCanonicalUri(), group);
+            }
+            for (String alias : group.getAliasUrls()) {
+                byAlias.put(alias, group);
+            }
+            for (Long channel : channelIds(group)) {
+                byChannel.put(channel, group);
+            }
+            if (group instanceof Region && ((Region) group).getPlatform() != null) {
+                regionsByPlatform.put(((Region) group).getPlatform(), (Region) group);
+            }
+        }
+        this.byUri = ImmutableMap.copyOf(byUri);
+        this.byAlias = byAlias.build();
+        this.byChannel = byChannel.build();
+        this.regionsByPlatform = regionsByPlatform.build();
+    }
+
+    private static ImmutableSet<Long> channelIds(ChannelGroup group) {
+        ImmutableSet.Builder<Long> channels = ImmutableSet.builder();
+        if (group.getChannelNumberings() == null) {
+            return channels.build();
+        }
+        for (ChannelNumbering numbering : group.getChannelNumberings()) {
+            if (numbering.getChannel() != null) {
+                channels.add(numbering.getChannel());
+            }
+        }
+        return channels.build();
+    }
+
+    Iterable<ChannelGroup> all() {
+        return byId.values();
+    }
+
+    @Nullable
+    ChannelGroup forId(Long id) {
+        return copyOf(byId.get(id));
+    }
+
+    ImmutableList<ChannelGroup> forIds(Iterable<? extends Long> ids) {
+        ImmutableList.Builder<ChannelGroup> groups = ImmutableList.builder();
+        for (Long id : ids) {
+            ChannelGroup group = byId.get(id);
+            if (group != null) {
+                groups.add(copyOf(group));
+            }
+        }
+        return groups.build();
+    }
+
+    @Nullable
+    ChannelGroup forUri(String uri) {
+        return copyOf(byUri.get(uri));
+    }
+
+    ImmutableList<ChannelGroup> forAlias(String alias) {
+        ImmutableList.Builder<ChannelGroup> groups = ImmutableList.builder();
+        for (ChannelGroup group : byAlias.get(alias)) {
+            groups.add(copyOf(group));
+        }
+        return groups.build();
+    }
+
+    ImmutableList<ChannelGroup> forChannel(Long channelId) {
+        return byChannel.get(channelId);
+    }
+
+    ImmutableList<Region> regionsFor(Long platformId) {
+        return regionsByPlatform.get(platformId);
+    }
+
+    /**
+     * Returns a new snapshot in which each of the given groups replaces the group
+     * with the same id, and the groups with the removed ids are dropped.
+     */
+    ChannelGroupSnapshot withChanges(Iterable<? extends ChannelGroup> updated,
+            Iterable<Long> removed) {
+        if (Iterables.isEmpty(updated) && Iterables.isEmpty(removed)) {
+            return this;
+        }
+        Map<Long, ChannelGroup> merged = new TreeMap<>(byId);
+        for (Long id : removed) {
+            merged.remove(id);
+        }
+        for (ChannelGroup group : updated) {
+            merged.put(group.getId(), copyOf(group));
+        }
+        return new ChannelGroupSnapshot(merged.values());
+    }
+
+    @Nullable
+    private static ChannelGroup copyOf(@Nullable ChannelGroup group) {
+        if (group == null) {
+            return null;
+        }
+        return translator.fromDBObject(translator.toDBObject(null, group), null);
+    }
+}
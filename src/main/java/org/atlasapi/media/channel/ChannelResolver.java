@@ -1,8 +1,12 @@
 package org.atlasapi.media.channel;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.metabroadcast.common.base.Maybe;
+import org.joda.time.DateTime;
 
 import java.util.Map;
 
@@ -17,6 +21,22 @@ public interface ChannelResolver {
 
     Iterable<Channel> forIds(Iterable<Long> ids);
 
+    /**
+     * Resolves each distinct URI once, returning the channels found keyed by
+     * URI. URIs with no channel are absent from the result.
+     * <p>The default implementation calls {@link #fromUri(String)} per URI.</p>
+     */
+    default Map<String, Channel> forUris(Iterable<String> uris) {
+        ImmutableMap.Builder<String, Channel> channels = ImmutableMap.builder();
+        for (String uri : ImmutableSet.copyOf(uris)) {
+            Maybe<Channel> channel = fromUri(uri);
+            if (channel.hasValue()) {
+                channels.put(uri, channel.requireValue());
+            }
+        }
+        return channels.build();
+    }
+
     Iterable<Channel> all();
 
     Iterable<Channel> allChannels(ChannelQuery query);
@@ -47,6 +67,18 @@ public interface ChannelResolver {
 
     Iterable<Channel> forKeyPairAlias(ChannelQuery channelQuery);
 
+    /**
+     * Channels whose last-updated time is after {@code since}, ordered by id.
+     * <p>The default implementation filters {@link #all()}.</p>
+     */
+    default Iterable<Channel> updatedSince(DateTime since) {
+        return Iterables.filter(
+                all(),
+                channel -> channel.getLastUpdated() != null
+                        && channel.getLastUpdated().isAfter(since)
+        );
+    }
+
     default void refreshCache() {
         /* no-op */
     }
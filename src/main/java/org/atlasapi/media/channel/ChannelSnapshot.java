@@ -0,0 +1,204 @@
+package org.atlasapi.media.channel;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import org.atlasapi.media.entity.Alias;
+import org.atlasapi.media.entity.MediaType;
+import org.atlasapi.media.entity.Publisher;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import org.joda.time.DateTime;
+
+/**
+ * An immutable view of all channels, ordered by id, with an index per
+ * {@link ChannelQuery} attribute so that queries can be answered without
+ * scanning. Each index maps an attribute value to the positions of the
+ * matching channels, so intersecting criteria preserves id order.
+ *
+ * <p>Matching follows the Mongo query built by
+ * {@link MongoChannelStore#allChannels(ChannelQuery)}: multi-valued criteria
+ * match on any value, a channel without an advertise-from date never matches an
+ * advertised-on criterion, and alias namespace and value may be satisfied by
+ * different aliases of the same channel.</p>
+ */
+final class ChannelSnapshot {
+
+    private final ImmutableList<Channel> channels;
+    private final ImmutableMap<Long, Channel> byId;
+
+    private final Map<Publisher, BitSet> byBroadcaster = new HashMap<>();
+    private final Map<MediaType, BitSet> byMediaType = new HashMap<>();
+    private final Map<Publisher, BitSet> byAvailableFrom = new HashMap<>();
+    private final Map<Long, BitSet> byChannelGroup = new HashMap<>();
+    private final Map<String, BitSet> byGenre = new HashMap<>();
+    private final Map<Publisher, BitSet> byPublisher = new HashMap<>();
+    private final Map<String, BitSet> byUri = new HashMap<>();
+    private final Map<String, BitSet> byAliasNamespace = new HashMap<>();
+    private final Map<String, BitSet> byAliasValue = new HashMap<>();
+    private final Map<ChannelType, BitSet> byChannelType = new HashMap<>();
+
+    ChannelSnapshot(List<Channel> channelsById) {
+        this.channels = ImmutableList.copyOf(channelsById);
+        ImmutableMap.Builder<Long, Channel> byId = ImmutableMap.builder();
+        for (int position = 0; position < channels.size(); position++) {
+            Channel channel = channels.get(position);
+            if (channel.getId() != null) {
+                byId.put(channel.getId(), channel);
+            }
+            index(position, channel);
+        }
+        this.byId = byId.build();
+    }
+
+    /**
+     * Returns a new snapshot in which each of the given channels replaces the
+     * channel with the same id, or is added in id order if not already present.
+     */
+    ChannelSnapshot withUpdates(Iterable<Channel> updated) {
+        if (Iterables.isEmpty(updated)) {
+            return this;
+        }
+        SortedMap<Long, Channel> merged = new TreeMap<>(byId);
+        for (Channel channel : updated) {
+            merged.put(channel.getId(), channel);
+        }
+        return new ChannelSnapshot(ImmutableList.copyOf(merged.values()));
+    }
+
+    private void index(int position, Channel channel) {
+        put(byBroadcaster, channel.getBroadcaster(), position);
+        put(byMediaType, channel.getMediaType(), position);
+        putAll(byAvailableFrom, channel.getAvailableFrom(), position);
+        if (channel.getChannelNumbers() != null) {
+            for (ChannelNumbering numbering : channel.getChannelNumbers()) {
+                put(byChannelGroup, numbering.getChannelGroup(), position);
+            }
+        }
+        putAll(byGenre, channel.getGenres(), position);
+        put(byPublisher, channel.getSource(), position);
+        put(byUri, channel.getCanonicalUri(), position);
+        if (channel.getAliases() != null) {
+            for (Alias alias : channel.getAliases()) {
+                put(byAliasNamespace, alias.getNamespace(), position);
+                put(byAliasValue, alias.getValue(), position);
+            }
+        }
+        put(byChannelType, channel.getChannelType(), position);
+    }
+
+    private static <K> void putAll(Map<K, BitSet> index, @Nullable Iterable<? extends K> keys, int position) {
+        if (keys != null) {
+            for (K key : keys) {
+                put(index, key, position);
+            }
+        }
+    }
+
+    private static <K> void put(Map<K, BitSet> index, @Nullable K key, int position) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new BitSet()).set(position);
+        }
+    }
+
+    List<Channel> all() {
+        return channels;
+    }
+
+    @Nullable
+    Channel forId(long id) {
+        return byId.get(id);
+    }
+
+    @Nullable
+    Channel forUri(String uri) {
+        BitSet positions = byUri.get(uri);
+        return positions == null ? null : channels.get(positions.nextSetBit(0));
+    }
+
+    List<Channel> query(ChannelQuery query) {
+        BitSet matches = new BitSet(channels.size());
+        matches.set(0, channels.size());
+
+        if (query.getBroadcaster().isPresent()) {
+            retain(matches, byBroadcaster.get(query.getBroadcaster().get()));
+        }
+        if (query.getMediaType().isPresent()) {
+            retain(matches, byMediaType.get(query.getMediaType().get()));
+        }
+        if (query.getAvailableFrom().isPresent()) {
+            retain(matches, byAvailableFrom.get(query.getAvailableFrom().get()));
+        }
+        if (query.getChannelGroups().isPresent()) {
+            retain(matches, anyOf(byChannelGroup, query.getChannelGroups().get()));
+        }
+        if (query.getGenres().isPresent()) {
+            retain(matches, anyOf(byGenre, query.getGenres().get()));
+        }
+        if (query.getPublisher().isPresent()) {
+            retain(matches, byPublisher.get(query.getPublisher().get()));
+        }
+        if (query.getUri().isPresent()) {
+            retain(matches, byUri.get(query.getUri().get()));
+        }
+        if (query.getAliasNamespace().isPresent()) {
+            retain(matches, byAliasNamespace.get(query.getAliasNamespace().get()));
+        }
+        if (query.getAliasValue().isPresent()) {
+            retain(matches, byAliasValue.get(query.getAliasValue().get()));
+        }
+        if (query.getChannelType().isPresent()) {
+            retain(matches, byChannelType.get(query.getChannelType().get()));
+        }
+
+        ImmutableList.Builder<Channel> result = ImmutableList.builder();
+        for (int position = matches.nextSetBit(0); position >= 0;
+                position = matches.nextSetBit(position + 1)) {
+            Channel channel = channels.get(position);
+            if (query.getAdvertisedOn().isPresent()
+                    && !advertisedBy(channel, query.getAdvertisedOn().get())) {
+                continue;
+            }
+            result.add(channel);
+        }
+        return result.build();
+    }
+
+    private static boolean advertisedBy(Channel channel, DateTime advertisedOn) {
+        return channel.getAdvertiseFrom() != null
+                && !channel.getAdvertiseFrom().isAfter(advertisedOn);
+    }
+
+    private static void retain(BitSet matches, @Nullable BitSet indexed) {
+        if (indexed == null) {
+            matches.clear();
+        } else {
+            matches.and(indexed);
+        }
+    }
+
+    @Nullable
+    private static <K> BitSet anyOf(Map<K, BitSet> index, Collection<K> keys) {
+        BitSet union = null;
+        for (K key : keys) {
+            BitSet indexed = index.get(key);
+            if (indexed != null) {
+                if (union == null) {
+                    union = (BitSet) indexed.clone();
+                } else {
+                    union.or(indexed);
+                }
+            }
+        }
+        return union;
+    }
+}
@@ -1,9 +1,37 @@
 package org.atlasapi.media.channel;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.Set;
+
 import org.atlasapi.media.channel.Channel;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
 public interface ChannelWriter {
 
 	Channel createOrUpdate(Channel channel);
+
+	/**
+	 * Writes each of the given channels as {@link #createOrUpdate(Channel)} would,
+	 * allowing implementations to share work across the batch. Returns the
+	 * written channels in the order given.
+	 *
+	 * @throws IllegalArgumentException if a URI appears more than once, in which
+	 *         case nothing is written
+	 */
+	default List<Channel> createOrUpdateAll(Iterable<Channel> channels) {
+		Set<String> uris = Sets.newHashSet();
+		for (Channel channel : channels) {
+			checkArgument(uris.add(channel.getUri()), "Channel %s appears more than once", channel.getUri());
+		}
+		ImmutableList.Builder<Channel> written = ImmutableList.builder();
+		for (Channel channel : channels) {
+			written.add(createOrUpdate(channel));
+		}
+		return written.build();
+	}
 	
 }
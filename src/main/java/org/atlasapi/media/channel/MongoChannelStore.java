@@ -1,6 +1,9 @@
 package org.atlasapi.media.channel;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
@@ -22,10 +25,12 @@ import com.google.common.base.Equivalence;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Sets.SetView;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -33,6 +38,7 @@ import com.mongodb.DBObject;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
 import static com.metabroadcast.common.persistence.mongo.MongoConstants.SINGLE;
@@ -48,6 +54,7 @@ import static org.atlasapi.media.channel.ChannelTranslator.URI;
 import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.CANONICAL_URL;
 import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.IDS_NAMESPACE;
 import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.IDS_VALUE;
+import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.LAST_UPDATED;
 
 public class MongoChannelStore extends BaseChannelStore implements ServiceChannelStore {
 
@@ -137,6 +144,20 @@ public class MongoChannelStore extends BaseChannelStore implements ServiceChanne
         );
     }
 
+    @Override
+    public Map<String, Channel> forUris(Iterable<String> uris) {
+        ImmutableSet<String> distinctUris = ImmutableSet.copyOf(uris);
+        if (distinctUris.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        Map<String, Channel> channels = new LinkedHashMap<>();
+        for (DBObject dbo : collection.find(where().fieldIn(CANONICAL_URL, distinctUris).build())) {
+            Channel channel = translator.fromDBObject(dbo, null);
+            channels.putIfAbsent(channel.getUri(), channel);
+        }
+        return channels;
+    }
+
     @Override
     public Iterable<Channel> all() {
         return Iterables.transform(
@@ -212,6 +233,14 @@ public class MongoChannelStore extends BaseChannelStore implements ServiceChanne
                 .collect(MoreCollectors.toImmutableList());
     }
 
+    @Override
+    public Iterable<Channel> updatedSince(DateTime since) {
+        return Iterables.transform(
+                getOrderedCursor(where().fieldAfter(LAST_UPDATED, since).build()),
+                DB_TO_CHANNEL_TRANSLATOR::apply
+        );
+    }
+
     private DBCursor getOrderedCursor(DBObject query) {
         return collection.find(query)
                 .sort(new MongoSortBuilder().ascending(MongoConstants.ID).build());
@@ -219,28 +248,57 @@ public class MongoChannelStore extends BaseChannelStore implements ServiceChanne
 
     @Override
     public Channel createOrUpdate(Channel channel) {
-        checkNotNull(channel);
-        checkNotNull(channel.getUri());
-        Optional<Channel> existing = fromUri(channel.getUri()).toGuavaOptional();
-
-        if (existing.isPresent()) {
-            maintainParentLinks(channel, existing.get());
-        } else {
-            channel.setId(codec.decode(idGenerator.generate()).longValue());
+        return Iterables.getOnlyElement(createOrUpdateAll(ImmutableList.of(channel)));
+    }
+
+    /**
+     * Writes the channels, then applies all of their numbering changes with a
+     * single write per affected channel group. Every affected group is resolved
+     * before any channel is written.
+     */
+    @Override
+    public List<Channel> createOrUpdateAll(Iterable<Channel> channels) {
+        Map<String, Channel> byUri = new LinkedHashMap<>();
+        for (Channel channel : channels) {
+            checkNotNull(channel);
+            checkNotNull(channel.getUri());
+            checkArgument(
+                    byUri.put(channel.getUri(), channel) == null,
+                    "Channel %s appears more than once", channel.getUri()
+            );
         }
 
-        updateNumberingsOnChannelGroups(channel, existing);
-        ensureParentReference(channel);
-        setLastUpdated(channel, existing.orNull(), DateTime.now(DateTimeZone.UTC));
+        Map<String, Optional<Channel>> existingRecords = new LinkedHashMap<>();
+        NumberingChanges numberingChanges = new NumberingChanges();
+        for (Channel channel : byUri.values()) {
+            Optional<Channel> existing = fromUri(channel.getUri()).toGuavaOptional();
+            if (!existing.isPresent()) {
+                channel.setId(codec.decode(idGenerator.generate()).longValue());
+            }
+            numberingChanges.record(channel, existing);
+            existingRecords.put(channel.getUri(), existing);
+        }
+        Map<Long, ChannelGroup> channelGroups = numberingChanges.resolveGroups();
 
-        collection.update(
-                new BasicDBObject(URI, channel.getUri()),
-                translator.toDBObject(null, channel),
-                UPSERT,
-                SINGLE
-        );
+        DateTime now = DateTime.now(DateTimeZone.UTC);
+        for (Channel channel : byUri.values()) {
+            Optional<Channel> existing = existingRecords.get(channel.getUri());
+            if (existing.isPresent()) {
+                maintainParentLinks(channel, existing.get());
+            }
+            ensureParentReference(channel);
+            setLastUpdated(channel, existing.orNull(), now);
 
-        return channel;
+            collection.update(
+                    new BasicDBObject(URI, channel.getUri()),
+                    translator.toDBObject(null, channel),
+                    UPSERT,
+                    SINGLE
+            );
+        }
+
+        numberingChanges.applyTo(channelGroups);
+        return ImmutableList.copyOf(byUri.values());
     }
 
     private void maintainParentLinks(Channel newChannel, Channel existingChannel) {
@@ -272,48 +330,6 @@ public class MongoChannelStore extends BaseChannelStore implements ServiceChanne
         newChannel.setVariationIds(existingChannel.getVariations());
     }
 
-    private void updateNumberingsOnChannelGroups(Channel channel, Optional<Channel> existingRecord) {
-        if (existingRecord.isPresent()
-                && channel.getChannelNumbers().equals(existingRecord.get().getChannelNumbers())) {
-            return;
-        }
-
-        if (existingRecord.isPresent()) {
-            Set<ChannelNumbering> existingChannelNumbers = existingRecord.get().getChannelNumbers();
-            removeStaleLinks(channel, existingChannelNumbers);
-            addNewLinks(channel, existingChannelNumbers);
-            return;
-        }
-
-        // if the channel is new, add all channel numbers
-        addNewLinks(channel, Sets.newHashSet());
-    }
-
-    private void addNewLinks(Channel channel, Set<ChannelNumbering> existingChannelNumbers) {
-        Multimap<Long, ChannelNumbering> newChannelGroupMapping = ArrayListMultimap.create();
-        SetView<ChannelNumbering> newChannelNumberings = Sets.difference(
-                channel.getChannelNumbers(),
-                existingChannelNumbers
-        );
-
-        // group new channel numbering per channel group
-        newChannelNumberings.forEach(numbering -> {
-            numbering.setChannel(channel.getId());
-            newChannelGroupMapping.put(numbering.getChannelGroup(), numbering);
-        });
-
-        newChannelGroupMapping.keySet().forEach(channelGroupId -> {
-            ChannelGroup channelGroup = resolveChannelGroupForId(channelGroupId);
-
-            Collection<ChannelNumbering> newChannelGroupNumberings = newChannelGroupMapping.get(
-                    channelGroupId
-            );
-            newChannelGroupNumberings.forEach(channelGroup::addChannelNumbering);
-
-            channelGroupWriter.createOrUpdate(channelGroup);
-        });
-    }
-
     private void ensureParentReference(Channel channel) {
         if (channel.getParent() != null) {
             Optional<Channel> optParent = fromId(channel.getParent()).toGuavaOptional();
@@ -345,43 +361,77 @@ public class MongoChannelStore extends BaseChannelStore implements ServiceChanne
     }
 
     /**
-     * Given a channel containing a set of the new ChannelNumbering and a set of the existing
-     * ChannelNumberings, determines those numberings not in the new set, and removes them from
-     * their channel group.
-     *
-     * @param channel
-     * @param existingNumbers
+     * Accumulates, per channel group, the numberings to remove from and add to
+     * that group for a batch of channel writes, so that each group is read and
+     * written once however many channels in the batch it numbers.
      */
-    private void removeStaleLinks(
-            Channel channel,
-            Set<ChannelNumbering> existingNumbers
-    ) {
-        Multimap<Long, ChannelNumbering> expiredChannelGroupMapping = ArrayListMultimap.create();
-        SetView<ChannelNumbering> expiredNumberings = Sets.difference(
-                existingNumbers,
-                channel.getChannelNumbers()
-        );
-
-        // group expired channel numberings per channel group
-        expiredNumberings.forEach(numbering -> {
-            numbering.setChannel(channel.getId());
-            expiredChannelGroupMapping.put(numbering.getChannelGroup(), numbering);
-        });
+    private class NumberingChanges {
+
+        private final Multimap<Long, ChannelNumbering> expired = ArrayListMultimap.create();
+        private final Multimap<Long, ChannelNumbering> added = ArrayListMultimap.create();
+
+        void record(Channel channel, Optional<Channel> existingRecord) {
+            Set<ChannelNumbering> existingNumbers = existingRecord.isPresent()
+                                                    ? existingRecord.get().getChannelNumbers()
+                                                    : Sets.newHashSet();
+            if (existingRecord.isPresent()
+                    && channel.getChannelNumbers().equals(existingNumbers)) {
+                return;
+            }
 
-        expiredChannelGroupMapping.keySet().forEach(channelGroupId -> {
-            ChannelGroup channelGroup = resolveChannelGroupForId(channelGroupId);
+            // numberings not in the new set are removed from their channel group
+            Sets.difference(existingNumbers, channel.getChannelNumbers()).forEach(numbering -> {
+                numbering.setChannel(channel.getId());
+                expired.put(numbering.getChannelGroup(), numbering);
+            });
+
+            // if the channel is new, this adds all its channel numbers
+            Sets.difference(channel.getChannelNumbers(), existingNumbers).forEach(numbering -> {
+                numbering.setChannel(channel.getId());
+                added.put(numbering.getChannelGroup(), numbering);
+            });
+        }
 
-            Collection<ChannelNumbering> expiredChannelGroupNumberings = expiredChannelGroupMapping.get(
-                    channelGroupId
-            );
-            Iterable<ChannelNumbering> nonExpired = Iterables.filter(
-                    channelGroup.getChannelNumberings(),
-                    channelNumbering -> !expiredChannelGroupNumberings.contains(channelNumbering)
+        Map<Long, ChannelGroup> resolveGroups() {
+            Set<Long> channelGroupIds = ImmutableSet.copyOf(
+                    Sets.union(expired.keySet(), added.keySet())
             );
-            channelGroup.setChannelNumberings(nonExpired);
+            if (channelGroupIds.isEmpty()) {
+                return ImmutableMap.of();
+            }
+            if (channelGroupIds.size() == 1) {
+                Long channelGroupId = Iterables.getOnlyElement(channelGroupIds);
+                return ImmutableMap.of(channelGroupId, resolveChannelGroupForId(channelGroupId));
+            }
+            Map<Long, ChannelGroup> channelGroups = new LinkedHashMap<>();
+            for (ChannelGroup channelGroup : channelGroupResolver.channelGroupsFor(channelGroupIds)) {
+                channelGroups.put(channelGroup.getId(), channelGroup);
+            }
+            for (Long channelGroupId : channelGroupIds) {
+                if (!channelGroups.containsKey(channelGroupId)) {
+                    throw new IllegalStateException(String.format(
+                            "ChannelGroup with id %s not found",
+                            channelGroupId
+                    ));
+                }
+            }
+            return channelGroups;
+        }
 
-            channelGroupWriter.createOrUpdate(channelGroup);
-        });
+        void applyTo(Map<Long, ChannelGroup> channelGroups) {
+            channelGroups.forEach((channelGroupId, channelGroup) -> {
+                Collection<ChannelNumbering> expiredNumberings = expired.get(channelGroupId);
+                if (!expiredNumberings.isEmpty()) {
+                    channelGroup.setChannelNumberings(ImmutableList.copyOf(Iterables.filter(
+                            channelGroup.getChannelNumberings(),
+                            channelNumbering -> !expiredNumberings.contains(channelNumbering)
+                    )));
+                }
+                added.get(channelGroupId).forEach(channelGroup::addChannelNumbering);
+
+                channelGroupWriter.createOrUpdate(channelGroup);
+            });
+        }
     }
 
     private ChannelGroup resolveChannelGroupForId(Long channelGroupId) {
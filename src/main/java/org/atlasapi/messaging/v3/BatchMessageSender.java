@@ -0,0 +1,21 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.List;
+
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessagingException;
+
+/**
+ * A {@link MessageSender} that can send several messages sharing a partition
+ * key in one go, cheaper than sending them one at a time.
+ */
+public interface BatchMessageSender<M extends Message> extends MessageSender<M> {
+
+    /**
+     * Sends the messages, in order, with the given partition key. If this
+     * throws, any of the messages may or may not have been sent.
+     */
+    void sendMessages(List<? extends M> messages, byte[] partitionKey) throws MessagingException;
+
+}
@@ -0,0 +1,37 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.List;
+
+import org.joda.time.Duration;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.metabroadcast.common.queue.MessageSender;
+
+/**
+ * Holds back {@link EntityUpdatedMessage}s for a short window and sends only the
+ * latest message for each entity, so that an entity rewritten several times in
+ * quick succession is announced once.
+ *
+ * Windows behave as described in {@link CoalescingMessageSender}.
+ */
+public class CoalescingEntityUpdatedMessageSender
+        extends CoalescingMessageSender<EntityUpdatedMessage, List<String>> {
+
+    public CoalescingEntityUpdatedMessageSender(MessageSender<EntityUpdatedMessage> delegate,
+            Duration window, Duration maxDelay) {
+        this(delegate, window, maxDelay, Ticker.systemTicker());
+    }
+
+    public CoalescingEntityUpdatedMessageSender(MessageSender<EntityUpdatedMessage> delegate,
+            Duration window, Duration maxDelay, Ticker ticker) {
+        super(
+                delegate,
+                message -> ImmutableList.of(message.getEntityId(), message.getEntityType()),
+                (held, latest) -> latest,
+                window,
+                maxDelay,
+                ticker
+        );
+    }
+}
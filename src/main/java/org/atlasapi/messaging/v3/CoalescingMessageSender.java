@@ -0,0 +1,168 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessagingException;
+
+/**
+ * Holds back messages for a short window and sends one message for each key,
+ * so that a burst of messages about the same thing is announced once.
+ *
+ * A message whose key is already held is merged into the held message with the
+ * merge function, which is given the held and the latest message in that order.
+ * Each merge restarts the window, but no message is held for longer than
+ * {@code maxDelay} after the first message it replaced, so a key which is
+ * continuously updated is still sent regularly. Messages are sent with the
+ * partition key of the latest message.
+ *
+ * Messages are sent from a background thread, under the {@link MessagePriority}
+ * current when they were held. A merged message is {@link MessagePriority#LIVE}
+ * if any message merged into it was.
+ *
+ * Pending messages live only in memory and are lost if the process dies before
+ * they are sent; {@link #close()} sends any that are pending.
+ */
+public class CoalescingMessageSender<M extends Message, K> implements MessageSender<M> {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingMessageSender.class);
+
+    private final MessageSender<M> delegate;
+    private final Function<? super M, K> key;
+    private final BinaryOperator<M> merge;
+    private final long windowNanos;
+    private final long maxDelayNanos;
+    private final Ticker ticker;
+    private final ConcurrentMap<K, Pending<M>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public CoalescingMessageSender(MessageSender<M> delegate, Function<? super M, K> key,
+            BinaryOperator<M> merge, Duration window, Duration maxDelay, Ticker ticker) {
+        checkArgument(window.getMillis() > 0, "window must be positive");
+        checkArgument(!maxDelay.isShorterThan(window), "maxDelay must be at least the window");
+        this.delegate = checkNotNull(delegate);
+        this.key = checkNotNull(key);
+        this.merge = checkNotNull(merge);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window.getMillis());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelay.getMillis());
+        this.ticker = checkNotNull(ticker);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("coalescing-message-sender-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        long tickMillis = Math.max(1, window.getMillis() / 4);
+        executor.scheduleWithFixedDelay(this::sendDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void sendMessage(M message) throws MessagingException {
+        hold(message, null);
+    }
+
+    @Override
+    public void sendMessage(M message, byte[] partitionKey) throws MessagingException {
+        hold(message, checkNotNull(partitionKey));
+    }
+
+    private void hold(M message, @Nullable byte[] partitionKey) {
+        long now = ticker.read();
+        MessagePriority priority = MessagePriority.current();
+        pending.merge(
+                checkNotNull(key.apply(message)),
+                new Pending<>(message, partitionKey, priority, now, now + windowNanos),
+                (held, latest) -> new Pending<>(
+                        merge.apply(held.message, message),
+                        partitionKey,
+                        Ordering.natural().min(held.priority, priority),
+                        held.firstHeld,
+                        Math.min(now + windowNanos, held.firstHeld + maxDelayNanos)
+                )
+        );
+    }
+
+    /**
+     * Sends every held message whose window has closed.
+     */
+    void sendDue() {
+        long now = ticker.read();
+        for (Map.Entry<K, Pending<M>> entry : pending.entrySet()) {
+            if (entry.getValue().sendAt - now <= 0) {
+                send(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void send(K key, Pending<M> held) {
+        // a newer message may have been merged in since it was found to be due
+        if (!pending.remove(key, held)) {
+            return;
+        }
+        try {
+            MessagePriority.callAs(held.priority, () -> {
+                if (held.partitionKey != null) {
+                    delegate.sendMessage(held.message, held.partitionKey);
+                } else {
+                    delegate.sendMessage(held.message);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error(String.format("coalesced message failed: %s %s",
+                    key, held.message.getMessageId()), e);
+        }
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        for (Map.Entry<K, Pending<M>> entry : pending.entrySet()) {
+            send(entry.getKey(), entry.getValue());
+        }
+        delegate.close();
+    }
+
+    private static final class Pending<M> {
+
+        private final M message;
+        @Nullable private final byte[] partitionKey;
+        private final MessagePriority priority;
+        private final long firstHeld;
+        private final long sendAt;
+
+        private Pending(M message, @Nullable byte[] partitionKey, MessagePriority priority,
+                long firstHeld, long sendAt) {
+            this.message = message;
+            this.partitionKey = partitionKey;
+            this.priority = priority;
+            this.firstHeld = firstHeld;
+            this.sendAt = sendAt;
+        }
+    }
+}
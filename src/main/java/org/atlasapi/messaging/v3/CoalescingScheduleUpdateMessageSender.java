@@ -0,0 +1,52 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.List;
+
+import org.joda.time.Duration;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.metabroadcast.common.queue.MessageSender;
+
+/**
+ * Holds back {@link ScheduleUpdateMessage}s for a short window and merges those
+ * for the same channel and source into one message covering all their
+ * intervals, so that overlapping blocks re-sent in quick succession cause one
+ * schedule rebuild downstream.
+ *
+ * Windows behave as described in {@link CoalescingMessageSender}. The merged
+ * message takes the id and timestamp of the latest update.
+ */
+public class CoalescingScheduleUpdateMessageSender
+        extends CoalescingMessageSender<ScheduleUpdateMessage, List<String>> {
+
+    public CoalescingScheduleUpdateMessageSender(MessageSender<ScheduleUpdateMessage> delegate,
+            Duration window, Duration maxDelay) {
+        this(delegate, window, maxDelay, Ticker.systemTicker());
+    }
+
+    public CoalescingScheduleUpdateMessageSender(MessageSender<ScheduleUpdateMessage> delegate,
+            Duration window, Duration maxDelay, Ticker ticker) {
+        super(
+                delegate,
+                message -> ImmutableList.of(message.getChannel(), message.getSource()),
+                CoalescingScheduleUpdateMessageSender::covering,
+                window,
+                maxDelay,
+                ticker
+        );
+    }
+
+    private static ScheduleUpdateMessage covering(ScheduleUpdateMessage held,
+            ScheduleUpdateMessage latest) {
+        return new ScheduleUpdateMessage(
+                latest.getMessageId(),
+                latest.getTimestamp(),
+                latest.getSource(),
+                latest.getChannel(),
+                Ordering.natural().min(held.getUpdateStart(), latest.getUpdateStart()),
+                Ordering.natural().max(held.getUpdateEnd(), latest.getUpdateEnd())
+        );
+    }
+}
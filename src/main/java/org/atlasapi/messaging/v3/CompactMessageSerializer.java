@@ -0,0 +1,288 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessage.AdjacentRef;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageDeserializationException;
+import com.metabroadcast.common.queue.MessageSerializationException;
+import com.metabroadcast.common.queue.MessageSerializer;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.Timestamp;
+
+/**
+ * Serializes {@link EntityUpdatedMessage}s, {@link ScheduleUpdateMessage}s and
+ * {@link ContentEquivalenceAssertionMessage}s in a compact binary format, and
+ * reads both that format and the JSON written by {@link JacksonMessageSerializer}.
+ *
+ * Binary messages start with a zero byte, which no JSON document can, followed
+ * by a format version and a message type, so consumers can be switched to this
+ * serializer before producers are. Producers write binary only when created
+ * with {@link WireFormat#BINARY}; other message types are always written as JSON.
+ *
+ * Strings in assertion messages are written once in a table and referred to by
+ * index, since adjacent refs mostly share a handful of types and sources.
+ *
+ * Strings, timestamps and dates are each preceded by a flag saying whether they
+ * are present, so that messages with null fields round-trip as they do in JSON.
+ */
+public class CompactMessageSerializer<M extends Message> implements MessageSerializer<M> {
+
+    public enum WireFormat {
+        JSON,
+        BINARY
+    }
+
+    static final byte MAGIC = 0;
+    static final byte VERSION = 1;
+
+    private static final byte ENTITY_UPDATED = 1;
+    private static final byte SCHEDULE_UPDATE = 2;
+    private static final byte EQUIVALENCE_ASSERTION = 3;
+
+    public static <M extends Message> CompactMessageSerializer<M> forType(
+            Class<? extends M> cls, WireFormat writeFormat) {
+        return new CompactMessageSerializer<>(cls, writeFormat);
+    }
+
+    private final Class<? extends M> cls;
+    private final WireFormat writeFormat;
+    private final JacksonMessageSerializer<M> json;
+
+    private CompactMessageSerializer(Class<? extends M> cls, WireFormat writeFormat) {
+        this.cls = checkNotNull(cls);
+        this.writeFormat = checkNotNull(writeFormat);
+        this.json = JacksonMessageSerializer.forType(cls);
+    }
+
+    @Override
+    public byte[] serialize(M message) throws MessageSerializationException {
+        if (writeFormat == WireFormat.JSON || typeOf(message) == 0) {
+            return json.serialize(message);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(typeOf(message));
+            writeString(out, message.getMessageId());
+            writeTimestamp(out, message.getTimestamp());
+            if (message instanceof EntityUpdatedMessage) {
+                write(out, (EntityUpdatedMessage) message);
+            } else if (message instanceof ScheduleUpdateMessage) {
+                write(out, (ScheduleUpdateMessage) message);
+            } else {
+                write(out, (ContentEquivalenceAssertionMessage) message);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            throw new MessageSerializationException(message.toString(), e);
+        }
+    }
+
+    @Override
+    public M deserialize(byte[] serialized) throws MessageDeserializationException {
+        if (serialized.length == 0 || serialized[0] != MAGIC) {
+            return json.deserialize(serialized);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+            in.readByte();
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported message format version " + version);
+            }
+            byte type = in.readByte();
+            String messageId = readString(in);
+            Timestamp timestamp = readTimestamp(in);
+            Message message;
+            switch (type) {
+            case ENTITY_UPDATED:
+                message = readEntityUpdated(in, messageId, timestamp);
+                break;
+            case SCHEDULE_UPDATE:
+                message = readScheduleUpdate(in, messageId, timestamp);
+                break;
+            case EQUIVALENCE_ASSERTION:
+                message = readAssertion(in, messageId, timestamp);
+                break;
+            default:
+                throw new IOException("Unknown message type " + type);
+            }
+            if (!cls.isInstance(message)) {
+                throw new IOException(String.format("Expected %s but got %s",
+                        cls.getSimpleName(), message.getClass().getSimpleName()));
+            }
+            return cls.cast(message);
+        } catch (IOException e) {
+            throw new MessageDeserializationException(e);
+        }
+    }
+
+    private byte typeOf(Message message) {
+        if (message instanceof EntityUpdatedMessage) {
+            return ENTITY_UPDATED;
+        }
+        if (message instanceof ScheduleUpdateMessage) {
+            return SCHEDULE_UPDATE;
+        }
+        if (message instanceof ContentEquivalenceAssertionMessage) {
+            return EQUIVALENCE_ASSERTION;
+        }
+        return 0;
+    }
+
+    private void write(DataOutputStream out, EntityUpdatedMessage message) throws IOException {
+        writeString(out, message.getEntityId());
+        writeString(out, message.getEntityType());
+        writeString(out, message.getEntitySource());
+    }
+
+    private EntityUpdatedMessage readEntityUpdated(DataInputStream in, String messageId,
+            Timestamp timestamp) throws IOException {
+        return new EntityUpdatedMessage(messageId, timestamp, readString(in), readString(in), readString(in));
+    }
+
+    private void write(DataOutputStream out, ScheduleUpdateMessage message) throws IOException {
+        writeString(out, message.getSource());
+        writeString(out, message.getChannel());
+        writeDateTime(out, message.getUpdateStart());
+        writeDateTime(out, message.getUpdateEnd());
+    }
+
+    private ScheduleUpdateMessage readScheduleUpdate(DataInputStream in, String messageId,
+            Timestamp timestamp) throws IOException {
+        String source = readString(in);
+        String channel = readString(in);
+        DateTime start = readDateTime(in);
+        DateTime end = readDateTime(in);
+        return new ScheduleUpdateMessage(messageId, timestamp, source, channel, start, end);
+    }
+
+    private void write(DataOutputStream out, ContentEquivalenceAssertionMessage message)
+            throws IOException {
+        Map<String, Integer> table = Maps.newLinkedHashMap();
+        index(table, message.getEntityType());
+        index(table, message.getEntitySource());
+        for (AdjacentRef adjacent : message.getAdjacent()) {
+            index(table, adjacent.getType());
+            index(table, adjacent.getSource());
+        }
+        for (String source : message.getSources()) {
+            index(table, source);
+        }
+
+        out.writeInt(table.size());
+        for (String string : table.keySet()) {
+            writeString(out, string);
+        }
+        writeString(out, message.getEntityId());
+        out.writeInt(table.get(message.getEntityType()));
+        out.writeInt(table.get(message.getEntitySource()));
+        out.writeInt(message.getAdjacent().size());
+        for (AdjacentRef adjacent : message.getAdjacent()) {
+            writeString(out, adjacent.getId());
+            out.writeInt(table.get(adjacent.getType()));
+            out.writeInt(table.get(adjacent.getSource()));
+        }
+        out.writeInt(message.getSources().size());
+        for (String source : message.getSources()) {
+            out.writeInt(table.get(source));
+        }
+    }
+
+    private void index(Map<String, Integer> table, @Nullable String string) {
+        if (!table.containsKey(string)) {
+            table.put(string, table.size());
+        }
+    }
+
+    private ContentEquivalenceAssertionMessage readAssertion(DataInputStream in, String messageId,
+            Timestamp timestamp) throws IOException {
+        int tableSize = in.readInt();
+        List<String> table = Lists.newArrayListWithCapacity(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            table.add(readString(in));
+        }
+        String subjectId = readString(in);
+        String subjectType = table.get(in.readInt());
+        String subjectSource = table.get(in.readInt());
+
+        int adjacentCount = in.readInt();
+        ImmutableList.Builder<AdjacentRef> adjacents = ImmutableList.builder();
+        for (int i = 0; i < adjacentCount; i++) {
+            adjacents.add(new AdjacentRef(readString(in), table.get(in.readInt()), table.get(in.readInt())));
+        }
+
+        int sourceCount = in.readInt();
+        ImmutableSet.Builder<String> sources = ImmutableSet.builder();
+        for (int i = 0; i < sourceCount; i++) {
+            sources.add(table.get(in.readInt()));
+        }
+        return new ContentEquivalenceAssertionMessage(messageId, timestamp, subjectId, subjectType,
+                subjectSource, adjacents.build(), sources.build());
+    }
+
+    private void writeString(DataOutputStream out, @Nullable String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    @Nullable
+    private String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private void writeTimestamp(DataOutputStream out, @Nullable Timestamp timestamp) throws IOException {
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) {
+            out.writeLong(timestamp.millis());
+        }
+    }
+
+    @Nullable
+    private Timestamp readTimestamp(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Timestamp.of(in.readLong()) : null;
+    }
+
+    private void writeDateTime(DataOutputStream out, @Nullable DateTime dateTime) throws IOException {
+        out.writeBoolean(dateTime != null);
+        if (dateTime != null) {
+            out.writeLong(dateTime.getMillis());
+        }
+    }
+
+    @Nullable
+    private DateTime readDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new DateTime(in.readLong(), DateTimeZones.UTC) : null;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(getClass())
+            .addValue(cls.getSimpleName())
+            .addValue(writeFormat)
+            .toString();
+    }
+}
@@ -1,14 +1,18 @@
 package org.atlasapi.messaging.v3;
 
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.TimeUnit;
 
 import org.atlasapi.media.entity.Content;
 import org.atlasapi.media.entity.LookupRef;
 import org.atlasapi.persistence.lookup.entry.LookupEntry;
 import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
+import org.joda.time.Duration;
 
 import com.metabroadcast.common.ids.NumberToShortStringCodec;
 import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
@@ -17,8 +21,14 @@ import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.Timestamp;
 import com.metabroadcast.common.time.Timestamper;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Sets;
 import com.google.common.primitives.Longs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,20 +40,31 @@ public class ContentEquivalenceAssertionMessenger {
     private static final Logger log = LoggerFactory
             .getLogger(ContentEquivalenceAssertionMessenger.class);
 
+    private static final long DEFAULT_PARTITION_KEY_CACHE_SIZE = 100_000;
+    private static final Duration DEFAULT_PARTITION_KEY_CACHE_EXPIRY = Duration.standardMinutes(10);
+
     private final MessageSender<ContentEquivalenceAssertionMessage> sender;
     private final Timestamper timestamper;
     private final LookupEntryStore lookupEntryStore;
     private final NumberToShortStringCodec entityIdCodec;
+    // subject id to the id its graph is partitioned on
+    private final Cache<Long, Long> graphIds;
 
     private ContentEquivalenceAssertionMessenger(
             MessageSender<ContentEquivalenceAssertionMessage> sender,
             Timestamper timestamper,
-            LookupEntryStore lookupEntryStore
+            LookupEntryStore lookupEntryStore,
+            long partitionKeyCacheSize,
+            Duration partitionKeyCacheExpiry
     ) {
         this.sender = checkNotNull(sender);
         this.timestamper = checkNotNull(timestamper);
         this.lookupEntryStore = checkNotNull(lookupEntryStore);
         this.entityIdCodec = SubstitutionTableNumberCodec.lowerCaseOnly();
+        this.graphIds = CacheBuilder.newBuilder()
+                .maximumSize(partitionKeyCacheSize)
+                .expireAfterWrite(partitionKeyCacheExpiry.getMillis(), TimeUnit.MILLISECONDS)
+                .build();
     }
 
     public static ContentEquivalenceAssertionMessenger create(
@@ -51,7 +72,35 @@ public class ContentEquivalenceAssertionMessenger {
             Timestamper timestamper,
             LookupEntryStore lookupEntryStore
     ) {
-        return new ContentEquivalenceAssertionMessenger(sender, timestamper, lookupEntryStore);
+        return create(
+                sender,
+                timestamper,
+                lookupEntryStore,
+                DEFAULT_PARTITION_KEY_CACHE_SIZE,
+                DEFAULT_PARTITION_KEY_CACHE_EXPIRY
+        );
+    }
+
+    /**
+     * @param partitionKeyCacheSize the number of subjects whose partition keys are
+     *        remembered, so that repeated assertions about a subject need not read
+     *        its lookup entry again. Partition keys only need to be stable while a
+     *        graph is unchanged, so a cached key going stale is harmless.
+     */
+    public static ContentEquivalenceAssertionMessenger create(
+            MessageSender<ContentEquivalenceAssertionMessage> sender,
+            Timestamper timestamper,
+            LookupEntryStore lookupEntryStore,
+            long partitionKeyCacheSize,
+            Duration partitionKeyCacheExpiry
+    ) {
+        return new ContentEquivalenceAssertionMessenger(
+                sender,
+                timestamper,
+                lookupEntryStore,
+                partitionKeyCacheSize,
+                partitionKeyCacheExpiry
+        );
     }
 
     public void sendMessage(
@@ -59,19 +108,82 @@ public class ContentEquivalenceAssertionMessenger {
             ImmutableList<Content> adjacents,
             ImmutableSet<String> sources
     ) {
+        sendMessages(ImmutableList.of(new Assertion(subject, adjacents, sources)));
+    }
+
+    /**
+     * Sends an assertion about a subject whose lookup entry the caller already
+     * holds, which saves reading it again to find the partition key.
+     */
+    public void sendMessage(
+            Content subject,
+            ImmutableList<Content> adjacents,
+            ImmutableSet<String> sources,
+            LookupEntry subjectEntry
+    ) {
+        Long graphId = graphIdOf(subjectEntry).orElse(subject.getId());
+        graphIds.put(subject.getId(), graphId);
+        send(new Assertion(subject, adjacents, sources), graphId);
+    }
+
+    /**
+     * Sends many assertions, reading the lookup entries of all subjects whose
+     * partition keys are not already known in one go.
+     *
+     * Assertions are grouped by partition key, keeping their order within each
+     * key. If the sender is a {@link BatchMessageSender} each group is sent as a
+     * batch, otherwise its messages are sent one at a time.
+     */
+    public void sendMessages(Iterable<Assertion> assertions) {
+        Map<Long, Long> graphIds = graphIdsFor(assertions);
+        if (!(sender instanceof BatchMessageSender)) {
+            for (Assertion assertion : assertions) {
+                Long subjectId = assertion.subject.getId();
+                send(assertion, graphIds.getOrDefault(subjectId, subjectId));
+            }
+            return;
+        }
+
+        ListMultimap<Long, ContentEquivalenceAssertionMessage> batches =
+                MultimapBuilder.linkedHashKeys().arrayListValues().build();
+        for (Assertion assertion : assertions) {
+            Long subjectId = assertion.subject.getId();
+            try {
+                batches.put(
+                        graphIds.getOrDefault(subjectId, subjectId),
+                        messageFrom(assertion.subject, assertion.adjacents, assertion.sources)
+                );
+            } catch (Exception e) {
+                log.error("Failed to create equiv update message: " + assertion.subject, e);
+            }
+        }
+        BatchMessageSender<ContentEquivalenceAssertionMessage> batchSender =
+                (BatchMessageSender<ContentEquivalenceAssertionMessage>) sender;
+        for (Long graphId : batches.keySet()) {
+            List<ContentEquivalenceAssertionMessage> batch = batches.get(graphId);
+            try {
+                batchSender.sendMessages(batch, Longs.toByteArray(graphId));
+            } catch (Exception e) {
+                log.error("Failed to send {} equiv update messages for graph {}",
+                        batch.size(), graphId, e);
+            }
+        }
+    }
+
+    private void send(Assertion assertion, Long graphId) {
         try {
             ContentEquivalenceAssertionMessage message = messageFrom(
-                    subject,
-                    adjacents,
-                    sources
+                    assertion.subject,
+                    assertion.adjacents,
+                    assertion.sources
             );
 
             sender.sendMessage(
                     message,
-                    getMessagePartitionKey(subject)
+                    Longs.toByteArray(graphId)
             );
         } catch (Exception e) {
-            log.error("Failed to send equiv update message: " + subject, e);
+            log.error("Failed to send equiv update message: " + assertion.subject, e);
         }
     }
 
@@ -114,42 +226,75 @@ public class ContentEquivalenceAssertionMessenger {
                 .collect(MoreCollectors.toImmutableList());
     }
 
-    private byte[] getMessagePartitionKey(Content subject) {
-        Iterable<LookupEntry> lookupEntries = lookupEntryStore.entriesForIds(
-                ImmutableSet.of(subject.getId())
-        );
+    // graph ids of the subjects, from the cache or else their lookup entries;
+    // subjects without a lookup entry are left out and partitioned on their own id
+    private Map<Long, Long> graphIdsFor(Iterable<Assertion> assertions) {
+        Map<Long, Long> found = Maps.newHashMap();
+        Set<Long> toRead = Sets.newHashSet();
+        for (Assertion assertion : assertions) {
+            Long subjectId = assertion.subject.getId();
+            Long cached = graphIds.getIfPresent(subjectId);
+            if (cached != null) {
+                found.put(subjectId, cached);
+            } else {
+                toRead.add(subjectId);
+            }
+        }
+        if (toRead.isEmpty()) {
+            return found;
+        }
+        try {
+            for (LookupEntry entry : lookupEntryStore.entriesForIds(toRead)) {
+                Long subjectId = entry.id();
+                if (!toRead.contains(subjectId)) {
+                    continue;
+                }
+                Long graphId = graphIdOf(entry).orElse(subjectId);
+                graphIds.put(subjectId, graphId);
+                found.put(subjectId, graphId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read lookup entries for partition keys, using subject ids", e);
+        }
+        return found;
+    }
 
-        Optional<LookupEntry> lookupEntryOptional = StreamSupport.stream(
-                lookupEntries.spliterator(),
-                false
-        )
+    private Optional<Long> graphIdOf(LookupEntry lookupEntry) {
+        // Given most of the time the equivalence results do not change the existing graph
+        // (due to the fact that we are often rerunning equivalence on the same items with
+        // the same results) the underlying graph will remain unchanged. Therefore if we get
+        // the smallest lookup entry ID from that graph that ID should be consistent enough
+        // to use as a partition key and ensure updates on the same graph end up on the same
+        // partition.
+        return ImmutableSet.<LookupRef>builder()
+                .addAll(lookupEntry.equivalents())
+                .addAll(lookupEntry.explicitEquivalents())
+                .addAll(lookupEntry.directEquivalents())
+                .build()
+                .stream()
+                .map(LookupRef::id)
+                .sorted()
                 .findFirst();
+    }
 
-        if (lookupEntryOptional.isPresent()) {
-            LookupEntry lookupEntry = lookupEntryOptional.get();
-
-            // Given most of the time the equivalence results do not change the existing graph
-            // (due to the fact that we are often rerunning equivalence on the same items with
-            // the same results) the underlying graph will remain unchanged. Therefore if we get
-            // the smallest lookup entry ID from that graph that ID should be consistent enough
-            // to use as a partition key and ensure updates on the same graph end up on the same
-            // partition.
-            Optional<Long> graphId = ImmutableSet.<LookupRef>builder()
-                    .addAll(lookupEntry.equivalents())
-                    .addAll(lookupEntry.explicitEquivalents())
-                    .addAll(lookupEntry.directEquivalents())
-                    .build()
-                    .stream()
-                    .map(LookupRef::id)
-                    .sorted()
-                    .findFirst();
-
-            if (graphId.isPresent()) {
-                return Longs.toByteArray(graphId.get());
-            }
-        }
+    /**
+     * An assertion that a subject is equivalent to the adjacent content, for the
+     * given sources.
+     */
+    public static final class Assertion {
 
-        // Default to returning the subject ID as the partition key
-        return Longs.toByteArray(subject.getId());
+        private final Content subject;
+        private final ImmutableList<Content> adjacents;
+        private final ImmutableSet<String> sources;
+
+        public Assertion(
+                Content subject,
+                ImmutableList<Content> adjacents,
+                ImmutableSet<String> sources
+        ) {
+            this.subject = checkNotNull(subject);
+            this.adjacents = checkNotNull(adjacents);
+            this.sources = checkNotNull(sources);
+        }
     }
 }
@@ -21,6 +21,8 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.module.SimpleDeserializers;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
@@ -148,21 +150,27 @@ public class JacksonMessageSerializer<M extends Message> implements MessageSeria
         }
     }
     
-    private final ObjectMapper mapper = JsonFactory.makeJsonMapper()
+    /* Configured mappers are thread-safe, and building one, with its serializer caches,
+       is far more expensive than any single message, so all serializers share one. */
+    private static final ObjectMapper MAPPER = JsonFactory.makeJsonMapper()
             .registerModule(new MessagingModule())
             .registerModule(new GuavaModule())
             .registerModule(new JodaModule());
 
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
     private final Class<? extends M> cls;
+    private final ObjectReader reader;
     
     public JacksonMessageSerializer(Class<? extends M> cls) {
         this.cls = checkNotNull(cls);
+        this.reader = MAPPER.readerFor(cls);
     }
     
     @Override
     public byte[] serialize(M message) throws MessageSerializationException {
         try {
-            return mapper.writeValueAsBytes(message);
+            return WRITER.writeValueAsBytes(message);
         } catch (IOException ioe) {
             throw new MessageSerializationException(message.toString(), ioe);
         }
@@ -171,7 +179,7 @@ public class JacksonMessageSerializer<M extends Message> implements MessageSeria
     @Override
     public M deserialize(byte[] serialized) throws MessageDeserializationException {
         try {
-            return mapper.readValue(serialized, cls);
+            return reader.readValue(serialized);
         } catch (IOException e) {
             throw new MessageDeserializationException(e);
         }
@@ -0,0 +1,56 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The priority class of the messages sent by the current thread, read by
+ * {@link PriorityLaneMessageSender} to choose a lane.
+ *
+ * Work defaults to {@link #LIVE}. Bulk work such as re-ingests and backfills
+ * should run its writes through {@link #runAs(MessagePriority, Runnable)} so
+ * the messages they cause do not hold up those from live ingest.
+ *
+ * The priority belongs to the thread, so it is lost when work is handed to
+ * another thread. Code which sends messages from a thread other than the one
+ * that caused them should capture {@link #current()} when it takes the work and
+ * send under {@link #callAs(MessagePriority, Callable)}.
+ */
+public enum MessagePriority {
+
+    LIVE,
+    BULK;
+
+    private static final ThreadLocal<MessagePriority> current = ThreadLocal.withInitial(() -> LIVE);
+
+    public static MessagePriority current() {
+        return current.get();
+    }
+
+    /**
+     * Runs the work with messages sent from this thread tagged with the given
+     * priority, restoring the previous priority afterwards.
+     */
+    public static <T> T callAs(MessagePriority priority, Callable<T> work) throws Exception {
+        checkNotNull(priority);
+        MessagePriority previous = current.get();
+        current.set(priority);
+        try {
+            return work.call();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    public static void runAs(MessagePriority priority, Runnable work) {
+        checkNotNull(priority);
+        MessagePriority previous = current.get();
+        current.set(priority);
+        try {
+            work.run();
+        } finally {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessageSerializer;
+import com.metabroadcast.common.queue.MessagingException;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+
+/**
+ * A {@link MessageSender} that appends messages to a Mongo outbox collection
+ * rather than sending them, so that writers are not held up by the broker.
+ *
+ * Once {@link #start()}ed, a background drainer delivers the outbox to the
+ * delegate sender in batches, in the order messages were appended. Delivered
+ * messages are removed from the outbox. Delivery is at least once: a message
+ * sent just before a crash may be sent again.
+ *
+ * A failure of the delegate sender is taken to be a broker failure rather than
+ * a fault of the message: the drain stops at that message and the drainer backs
+ * off, doubling the wait after each failed drain up to {@link #MAX_BACKOFF}. No
+ * attempt is counted, so an outage of any length leaves the outbox intact and in
+ * order.
+ *
+ * A message which cannot be read back holds back later messages with the same
+ * partition key. Once it has failed {@code maxAttempts} times it is moved to a
+ * dead-letter collection, with its entry unchanged, so that its key is no longer
+ * held back. Later messages for that key are then delivered without it.
+ *
+ * Batches of messages are appended with a single acknowledged insert.
+ *
+ * Any number of senders may append to the outbox for a destination, but only
+ * one should be started, since ordering relies on a single drainer.
+ */
+public class MongoOutboxMessageSender<M extends Message> implements BatchMessageSender<M> {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoOutboxMessageSender.class);
+
+    static final String DESTINATION = "destination";
+    static final String PARTITION_KEY = "key";
+    static final String MESSAGE = "message";
+    static final String ATTEMPTS = "attempts";
+    static final Duration MAX_BACKOFF = Duration.standardMinutes(5);
+
+    private final DBCollection outbox;
+    private final DBCollection deadLetters;
+    private final String destination;
+    private final MessageSerializer<? super M> serializer;
+    private final MessageSender<M> delegate;
+    private final Duration drainInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final ScheduledExecutorService executor;
+    private volatile boolean started = false;
+    // drained by the single drainer thread only
+    private int failedDrains = 0;
+    private long nextDrainNanos = System.nanoTime();
+
+    public MongoOutboxMessageSender(DBCollection outbox, DBCollection deadLetters,
+            String destination, MessageSerializer<? super M> serializer, MessageSender<M> delegate,
+            Duration drainInterval, int batchSize, int maxAttempts) {
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+        this.outbox = checkNotNull(outbox);
+        this.deadLetters = checkNotNull(deadLetters);
+        this.destination = checkNotNull(destination);
+        this.serializer = checkNotNull(serializer);
+        this.delegate = checkNotNull(delegate);
+        this.drainInterval = checkNotNull(drainInterval);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("outbox-" + destination + "-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+    }
+
+    public static DBObject toIndex() {
+        return new BasicDBObject(DESTINATION, 1).append(MongoConstants.ID, 1);
+    }
+
+    public void start() {
+        started = true;
+        executor.scheduleWithFixedDelay(
+                this::drainIfDue,
+                drainInterval.getMillis(),
+                drainInterval.getMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void sendMessage(M message) throws MessagingException {
+        append(message, null);
+    }
+
+    @Override
+    public void sendMessage(M message, byte[] partitionKey) throws MessagingException {
+        append(message, checkNotNull(partitionKey));
+    }
+
+    @Override
+    public void sendMessages(List<? extends M> messages, byte[] partitionKey)
+            throws MessagingException {
+        checkNotNull(partitionKey);
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<DBObject> entries = Lists.newArrayListWithCapacity(messages.size());
+        for (M message : messages) {
+            entries.add(entryFor(message, partitionKey));
+        }
+        insert(entries);
+    }
+
+    private void append(M message, @Nullable byte[] partitionKey) throws MessagingException {
+        insert(ImmutableList.of(entryFor(message, partitionKey)));
+    }
+
+    private DBObject entryFor(M message, @Nullable byte[] partitionKey) throws MessagingException {
+        DBObject entry = new BasicDBObject(DESTINATION, destination)
+                .append(MESSAGE, serializer.serialize(message))
+                .append(ATTEMPTS, 0);
+        if (partitionKey != null) {
+            entry.put(PARTITION_KEY, partitionKey);
+        }
+        return entry;
+    }
+
+    private void insert(List<DBObject> entries) throws MessagingException {
+        try {
+            outbox.insert(entries, WriteConcern.SAFE);
+        } catch (RuntimeException e) {
+            throw new MessagingException("Failed to append to outbox for " + destination, e);
+        }
+    }
+
+    private void drainIfDue() {
+        if (System.nanoTime() - nextDrainNanos < 0) {
+            return;
+        }
+        drain();
+        if (failedDrains > 0) {
+            long backoffMillis = Math.min(
+                    drainInterval.getMillis() << Math.min(failedDrains - 1, 20),
+                    MAX_BACKOFF.getMillis()
+            );
+            nextDrainNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        }
+    }
+
+    /**
+     * Drains the outbox until it is empty, the delegate sender fails or no
+     * further messages can be delivered.
+     */
+    void drain() {
+        try {
+            while (drainBatch() == batchSize) {
+                // keep going while batches come back full and are all delivered
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to drain outbox for " + destination, e);
+        }
+    }
+
+    /**
+     * Delivers the oldest batch of messages and removes those delivered,
+     * stopping at the first message the delegate sender fails to send. A batch
+     * made up entirely of held-back messages stalls other keys behind it until
+     * the unreadable messages are dead-lettered, so the batch size should
+     * comfortably exceed the number of keys expected to fail at once.
+     *
+     * @return the number of messages delivered
+     */
+    int drainBatch() {
+        Iterable<DBObject> batch = outbox.find(where().fieldEquals(DESTINATION, destination).build())
+                .sort(new BasicDBObject(MongoConstants.ID, 1))
+                .limit(batchSize);
+
+        List<Object> delivered = Lists.newArrayList();
+        Set<ByteBuffer> blockedKeys = Sets.newHashSet();
+        for (DBObject entry : batch) {
+            byte[] partitionKey = (byte[]) entry.get(PARTITION_KEY);
+            ByteBuffer key = partitionKey != null ? ByteBuffer.wrap(partitionKey) : null;
+            if (key != null && blockedKeys.contains(key)) {
+                continue;
+            }
+            M message = read(entry);
+            if (message != null) {
+                if (!deliver(entry, message, partitionKey)) {
+                    failedDrains++;
+                    remove(delivered);
+                    return delivered.size();
+                }
+                delivered.add(entry.get(MongoConstants.ID));
+            } else if (attempts(entry) + 1 >= maxAttempts) {
+                deadLetter(entry);
+            } else {
+                if (key != null) {
+                    blockedKeys.add(key);
+                }
+                outbox.update(new BasicDBObject(MongoConstants.ID, entry.get(MongoConstants.ID)),
+                        new BasicDBObject("$inc", new BasicDBObject(ATTEMPTS, 1)));
+            }
+        }
+
+        failedDrains = 0;
+        remove(delivered);
+        return delivered.size();
+    }
+
+    private void remove(List<Object> delivered) {
+        if (!delivered.isEmpty()) {
+            outbox.remove(new BasicDBObject(MongoConstants.ID, new BasicDBObject(MongoConstants.IN, delivered)));
+        }
+    }
+
+    private int attempts(DBObject entry) {
+        Number attempts = (Number) entry.get(ATTEMPTS);
+        return attempts != null ? attempts.intValue() : 0;
+    }
+
+    private void deadLetter(DBObject entry) {
+        Object id = entry.get(MongoConstants.ID);
+        entry.put(ATTEMPTS, attempts(entry) + 1);
+        deadLetters.save(entry, WriteConcern.SAFE);
+        outbox.remove(new BasicDBObject(MongoConstants.ID, id));
+        log.error("Gave up on outbox message {} to {} after {} attempts, moved to {}",
+                id, destination, maxAttempts, deadLetters.getName());
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private M read(DBObject entry) {
+        try {
+            return (M) serializer.deserialize((byte[]) entry.get(MESSAGE));
+        } catch (Exception e) {
+            log.warn("Failed to read outbox message {} to {}, attempt {}",
+                    entry.get(MongoConstants.ID), destination, attempts(entry) + 1, e);
+            return null;
+        }
+    }
+
+    private boolean deliver(DBObject entry, M message, @Nullable byte[] partitionKey) {
+        try {
+            if (partitionKey != null) {
+                delegate.sendMessage(message, partitionKey);
+            } else {
+                delegate.sendMessage(message);
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to deliver outbox message {} to {}, backing off",
+                    entry.get(MongoConstants.ID), destination, e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the drainer, making a last attempt to deliver what is in the outbox,
+     * and closes the delegate. Undelivered messages stay in the outbox.
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(drainInterval.getMillis(), TimeUnit.MILLISECONDS);
+        if (started) {
+            drain();
+        }
+        delegate.close();
+    }
+}
@@ -0,0 +1,92 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.Duration;
+
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageConsumerFactory;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessageSenderFactory;
+import com.metabroadcast.common.queue.MessageSerializer;
+import com.mongodb.DBCollection;
+
+/**
+ * Puts a {@link MongoOutboxMessageSender} in front of every sender made by the
+ * delegate module, so that writers using it only ever wait on Mongo.
+ * 
+ * One outbox sender is kept per destination, however many times a sender is
+ * asked for. Its drainer is started only if this module was told to drain, so
+ * that a single process can be made responsible for delivery. Messages that
+ * cannot be read back after {@code maxAttempts} drains are moved to
+ * {@value #DEAD_LETTER_COLLECTION}; broker failures never count as attempts.
+ */
+public class OutboxMessagingModule implements MessagingModule {
+
+    public static final String OUTBOX_COLLECTION = "messageOutbox";
+    public static final String DEAD_LETTER_COLLECTION = "messageOutboxDeadLetters";
+
+    private final MessagingModule delegate;
+    private final DBCollection outbox;
+    private final DBCollection deadLetters;
+    private final Duration drainInterval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final boolean drain;
+    private final ConcurrentMap<String, MongoOutboxMessageSender<?>> senders = new ConcurrentHashMap<>();
+
+    private final MessageSenderFactory senderFactory = new MessageSenderFactory() {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <M extends Message> MessageSender<M> makeMessageSender(String destination,
+                MessageSerializer<? super M> serializer) {
+            return (MessageSender<M>) senders.computeIfAbsent(
+                    destination,
+                    dest -> outboxSender(dest, serializer)
+            );
+        }
+    };
+
+    public OutboxMessagingModule(MessagingModule delegate, DatabasedMongo mongo,
+            Duration drainInterval, int batchSize, int maxAttempts, boolean drain) {
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+        this.delegate = checkNotNull(delegate);
+        this.outbox = mongo.collection(OUTBOX_COLLECTION);
+        this.deadLetters = mongo.collection(DEAD_LETTER_COLLECTION);
+        this.drainInterval = checkNotNull(drainInterval);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.drain = drain;
+    }
+
+    @Override
+    public MessageSenderFactory messageSenderFactory() {
+        return senderFactory;
+    }
+
+    @Override
+    public MessageConsumerFactory<?> messageConsumerFactory() {
+        return delegate.messageConsumerFactory();
+    }
+
+    private <M extends Message> MongoOutboxMessageSender<M> outboxSender(String destination,
+            MessageSerializer<? super M> serializer) {
+        MessageSender<M> brokerSender = delegate.messageSenderFactory()
+                .makeMessageSender(destination, serializer);
+        MongoOutboxMessageSender<M> sender = new MongoOutboxMessageSender<>(
+                outbox, deadLetters, destination, serializer, brokerSender,
+                drainInterval, batchSize, maxAttempts
+        );
+        if (drain) {
+            sender.start();
+        }
+        return sender;
+    }
+}
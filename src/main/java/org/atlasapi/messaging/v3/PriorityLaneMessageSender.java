@@ -0,0 +1,279 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessagingException;
+
+/**
+ * Buffers messages in one bounded lane per {@link MessagePriority}, chosen by
+ * the priority of the sending thread, and sends them to the lane's sender from
+ * dispatcher threads. Live messages are always sent before any bulk message
+ * waiting for the same dispatcher, so a backfill cannot delay live updates by
+ * more than the message being sent.
+ *
+ * Each dispatcher has its own pair of lanes. Messages with a partition key
+ * always go to the same dispatcher, and while a key has messages waiting, any
+ * further message for it joins them in their lane whatever its priority, so
+ * messages for one key are sent in the order they were given. Messages without
+ * a partition key are spread over the dispatchers. Lane capacities are per
+ * dispatcher. By default there is a dispatcher per available processor, so
+ * that one slow send doesn't hold up every other key.
+ *
+ * A sender blocks while its lane is full, so bulk work is throttled to the rate
+ * at which its lane drains without affecting the live lane. Messages are sent
+ * asynchronously, so send failures are logged rather than thrown. Lane senders
+ * are called with the priority of the lane as the current priority.
+ *
+ * The lane is chosen from the priority of the thread calling this sender, so it
+ * should sit in front of any sender that hands messages to another thread, or
+ * such senders must carry the priority across as {@link CoalescingMessageSender}
+ * does.
+ */
+public class PriorityLaneMessageSender<M extends Message> implements MessageSender<M> {
+
+    private static final Logger log = LoggerFactory.getLogger(PriorityLaneMessageSender.class);
+    static final int DEFAULT_DISPATCHERS = Runtime.getRuntime().availableProcessors();
+
+    private final Map<MessagePriority, MessageSender<M>> senders;
+    private final List<Stripe<M>> stripes;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final ExecutorService dispatchers;
+    private volatile boolean closed = false;
+
+    public PriorityLaneMessageSender(MessageSender<M> liveSender, int liveCapacity,
+            MessageSender<M> bulkSender, int bulkCapacity) {
+        this(liveSender, liveCapacity, bulkSender, bulkCapacity, DEFAULT_DISPATCHERS);
+    }
+
+    public PriorityLaneMessageSender(MessageSender<M> liveSender, int liveCapacity,
+            MessageSender<M> bulkSender, int bulkCapacity, int dispatchers) {
+        checkArgument(liveCapacity > 0, "liveCapacity must be positive");
+        checkArgument(bulkCapacity > 0, "bulkCapacity must be positive");
+        checkArgument(dispatchers > 0, "dispatchers must be positive");
+        this.senders = new EnumMap<>(MessagePriority.class);
+        senders.put(MessagePriority.LIVE, checkNotNull(liveSender));
+        senders.put(MessagePriority.BULK, checkNotNull(bulkSender));
+        ImmutableList.Builder<Stripe<M>> stripes = ImmutableList.builder();
+        for (int i = 0; i < dispatchers; i++) {
+            stripes.add(new Stripe<>(liveCapacity, bulkCapacity));
+        }
+        this.stripes = stripes.build();
+        this.dispatchers = Executors.newFixedThreadPool(
+                dispatchers,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("priority-lane-sender-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+    }
+
+    public void start() {
+        for (Stripe<M> stripe : stripes) {
+            dispatchers.execute(() -> {
+                try {
+                    while (!closed) {
+                        if (stripe.buffered.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                            dispatch(stripe);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void sendMessage(M message) throws MessagingException {
+        enqueue(new Pending<>(message, null));
+    }
+
+    @Override
+    public void sendMessage(M message, byte[] partitionKey) throws MessagingException {
+        enqueue(new Pending<>(message, checkNotNull(partitionKey)));
+    }
+
+    private void enqueue(Pending<M> pending) throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Sender is closed");
+        }
+        Stripe<M> stripe = stripeFor(pending);
+        BlockingQueue<Pending<M>> lane = stripe.lanes.get(stripe.queue(pending, MessagePriority.current()));
+        try {
+            lane.put(pending);
+        } catch (InterruptedException e) {
+            stripe.dequeued(pending);
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for lane space", e);
+        }
+        // close() may have drained the lanes between the check above and the put,
+        // in which case nothing will send the message unless it was taken already
+        if (closed && lane.remove(pending)) {
+            stripe.dequeued(pending);
+            throw new MessagingException("Sender is closed");
+        }
+        stripe.buffered.release();
+    }
+
+    private Stripe<M> stripeFor(Pending<M> pending) {
+        int hash = pending.partitionKey != null
+                   ? Arrays.hashCode(pending.partitionKey)
+                   : nextStripe.getAndIncrement();
+        return stripes.get(Math.floorMod(hash, stripes.size()));
+    }
+
+    /**
+     * Sends the next buffered message of each dispatcher, taking from the live
+     * lane first.
+     */
+    void dispatch() {
+        for (Stripe<M> stripe : stripes) {
+            dispatch(stripe);
+        }
+    }
+
+    private boolean dispatch(Stripe<M> stripe) {
+        for (MessagePriority priority : MessagePriority.values()) {
+            Pending<M> pending = stripe.lanes.get(priority).poll();
+            if (pending != null) {
+                stripe.dequeued(pending);
+                MessagePriority.runAs(priority, () -> send(senders.get(priority), pending));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of messages waiting in the lane, across all dispatchers
+     */
+    public int depth(MessagePriority priority) {
+        int depth = 0;
+        for (Stripe<M> stripe : stripes) {
+            depth += stripe.lanes.get(priority).size();
+        }
+        return depth;
+    }
+
+    private void send(MessageSender<M> sender, Pending<M> pending) {
+        try {
+            if (pending.partitionKey != null) {
+                sender.sendMessage(pending.message, pending.partitionKey);
+            } else {
+                sender.sendMessage(pending.message);
+            }
+        } catch (Exception e) {
+            log.error("Failed to send message " + pending.message.getMessageId(), e);
+        }
+    }
+
+    /**
+     * Stops accepting messages, sends those still buffered and closes the lane
+     * senders. A send racing with the close either has its message sent or
+     * fails with a {@link MessagingException}.
+     */
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        dispatchers.shutdown();
+        dispatchers.awaitTermination(1, TimeUnit.SECONDS);
+        for (Stripe<M> stripe : stripes) {
+            while (dispatch(stripe)) {
+            }
+        }
+        Set<MessageSender<M>> distinct = Sets.newIdentityHashSet();
+        distinct.addAll(senders.values());
+        for (MessageSender<M> sender : distinct) {
+            sender.close();
+        }
+    }
+
+    private static final class Stripe<M extends Message> {
+
+        private final Map<MessagePriority, BlockingQueue<Pending<M>>> lanes;
+        // one permit per buffered message, across both lanes
+        private final Semaphore buffered = new Semaphore(0);
+        // the lane holding each partition key's waiting messages
+        private final Map<ByteBuffer, QueuedKey> queuedKeys = new HashMap<>();
+
+        private Stripe(int liveCapacity, int bulkCapacity) {
+            this.lanes = new EnumMap<>(MessagePriority.class);
+            lanes.put(MessagePriority.LIVE, new ArrayBlockingQueue<>(liveCapacity));
+            lanes.put(MessagePriority.BULK, new ArrayBlockingQueue<>(bulkCapacity));
+        }
+
+        /**
+         * @return the lane the message should wait in: that of any messages
+         *         already waiting with its partition key, otherwise its own
+         */
+        synchronized MessagePriority queue(Pending<M> pending, MessagePriority priority) {
+            if (pending.partitionKey == null) {
+                return priority;
+            }
+            QueuedKey queued = queuedKeys.computeIfAbsent(
+                    ByteBuffer.wrap(pending.partitionKey),
+                    key -> new QueuedKey(priority)
+            );
+            queued.count++;
+            return queued.lane;
+        }
+
+        synchronized void dequeued(Pending<M> pending) {
+            if (pending.partitionKey == null) {
+                return;
+            }
+            ByteBuffer key = ByteBuffer.wrap(pending.partitionKey);
+            QueuedKey queued = queuedKeys.get(key);
+            if (queued != null && --queued.count == 0) {
+                queuedKeys.remove(key);
+            }
+        }
+    }
+
+    private static final class QueuedKey {
+
+        private final MessagePriority lane;
+        private int count;
+
+        private QueuedKey(MessagePriority lane) {
+            this.lane = lane;
+        }
+    }
+
+    private static final class Pending<M extends Message> {
+
+        private final M message;
+        @Nullable private final byte[] partitionKey;
+
+        private Pending(M message, @Nullable byte[] partitionKey) {
+            this.message = message;
+            this.partitionKey = partitionKey;
+        }
+    }
+}
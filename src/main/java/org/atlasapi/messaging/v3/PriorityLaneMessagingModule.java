@@ -0,0 +1,94 @@
+package org.atlasapi.messaging.v3;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageConsumerFactory;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessageSenderFactory;
+import com.metabroadcast.common.queue.MessageSerializer;
+
+/**
+ * Puts a {@link PriorityLaneMessageSender} in front of every sender made by the
+ * delegate module, so that messages sent from {@link MessagePriority#BULK} work
+ * queue separately from, and behind, live ones.
+ *
+ * If a bulk destination suffix is given, bulk messages are also sent to their
+ * own destination, named by appending the suffix, so that consumers can drain
+ * live changes first. Otherwise both lanes send to the same destination.
+ *
+ * One lane sender is kept per destination, however many times a sender is
+ * asked for, each with the given number of dispatcher threads, or one per
+ * available processor if not given.
+ */
+public class PriorityLaneMessagingModule implements MessagingModule {
+
+    private final MessagingModule delegate;
+    private final int liveCapacity;
+    private final int bulkCapacity;
+    private final int dispatchers;
+    @Nullable private final String bulkDestinationSuffix;
+    private final ConcurrentMap<String, PriorityLaneMessageSender<?>> senders = new ConcurrentHashMap<>();
+
+    private final MessageSenderFactory senderFactory = new MessageSenderFactory() {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <M extends Message> MessageSender<M> makeMessageSender(String destination,
+                MessageSerializer<? super M> serializer) {
+            return (MessageSender<M>) senders.computeIfAbsent(
+                    destination,
+                    dest -> laneSender(dest, serializer)
+            );
+        }
+    };
+
+    public PriorityLaneMessagingModule(MessagingModule delegate, int liveCapacity,
+            int bulkCapacity, @Nullable String bulkDestinationSuffix) {
+        this(delegate, liveCapacity, bulkCapacity, bulkDestinationSuffix,
+                PriorityLaneMessageSender.DEFAULT_DISPATCHERS);
+    }
+
+    public PriorityLaneMessagingModule(MessagingModule delegate, int liveCapacity,
+            int bulkCapacity, @Nullable String bulkDestinationSuffix, int dispatchers) {
+        checkArgument(liveCapacity > 0, "liveCapacity must be positive");
+        checkArgument(bulkCapacity > 0, "bulkCapacity must be positive");
+        checkArgument(dispatchers > 0, "dispatchers must be positive");
+        this.delegate = checkNotNull(delegate);
+        this.liveCapacity = liveCapacity;
+        this.bulkCapacity = bulkCapacity;
+        this.dispatchers = dispatchers;
+        this.bulkDestinationSuffix = bulkDestinationSuffix;
+    }
+
+    @Override
+    public MessageSenderFactory messageSenderFactory() {
+        return senderFactory;
+    }
+
+    @Override
+    public MessageConsumerFactory<?> messageConsumerFactory() {
+        return delegate.messageConsumerFactory();
+    }
+
+    private <M extends Message> PriorityLaneMessageSender<M> laneSender(String destination,
+            MessageSerializer<? super M> serializer) {
+        MessageSender<M> liveSender = delegate.messageSenderFactory()
+                .makeMessageSender(destination, serializer);
+        MessageSender<M> bulkSender = bulkDestinationSuffix == null
+                ? liveSender
+                : delegate.messageSenderFactory()
+                        .makeMessageSender(destination + bulkDestinationSuffix, serializer);
+        PriorityLaneMessageSender<M> sender = new PriorityLaneMessageSender<>(
+                liveSender, liveCapacity, bulkSender, bulkCapacity, dispatchers
+        );
+        sender.start();
+        return sender;
+    }
+}
@@ -36,6 +36,7 @@ import org.atlasapi.messaging.v3.ScheduleUpdateMessage;
 import org.atlasapi.persistence.audit.NoLoggingPersistenceAuditLog;
 import org.atlasapi.persistence.audit.PerHourAndDayMongoPersistenceAuditLog;
 import org.atlasapi.persistence.audit.PersistenceAuditLog;
+import org.atlasapi.persistence.content.CachingEquivalentContentResolver;
 import org.atlasapi.persistence.content.ContentGroupResolver;
 import org.atlasapi.persistence.content.ContentGroupWriter;
 import org.atlasapi.persistence.content.ContentPurger;
@@ -45,6 +46,7 @@ import org.atlasapi.persistence.content.DefaultEquivalentContentResolver;
 import org.atlasapi.persistence.content.EquivalenceContentWriter;
 import org.atlasapi.persistence.content.EquivalenceWritingContentWriter;
 import org.atlasapi.persistence.content.EquivalentContentResolver;
+import org.atlasapi.persistence.content.EventFiringContentWriter;
 import org.atlasapi.persistence.content.IdSettingContentWriter;
 import org.atlasapi.persistence.content.KnownTypeContentResolver;
 import org.atlasapi.persistence.content.LookupBackedContentIdGenerator;
@@ -85,6 +87,7 @@ import org.atlasapi.persistence.event.MessageQueueingEventWriter;
 import org.atlasapi.persistence.event.MongoEventStore;
 import org.atlasapi.persistence.ids.MongoSequentialIdGenerator;
 import org.atlasapi.persistence.logging.AdapterLog;
+import org.atlasapi.persistence.lookup.CacheInvalidatingLookupWriter;
 import org.atlasapi.persistence.lookup.LookupWriter;
 import org.atlasapi.persistence.lookup.NoLockTransitiveLookupWriter;
 import org.atlasapi.persistence.lookup.TransitiveLookupWriter;
@@ -101,8 +104,11 @@ import org.atlasapi.persistence.topic.TopicCreatingTopicResolver;
 import org.atlasapi.persistence.topic.TopicQueryResolver;
 import org.atlasapi.persistence.topic.TopicStore;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.springframework.context.annotation.Bean;
 
+import java.util.concurrent.TimeUnit;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -116,6 +122,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ConstructorBasedMongoContentPersistenceModule implements ContentPersistenceModule {
 
     private static final String LOOKUP = "lookup";
+    private static final Duration SCHEDULE_UPDATE_WINDOW = Duration.standardSeconds(5);
+    private static final Duration SCHEDULE_UPDATE_MAX_DELAY = Duration.standardSeconds(30);
+    private static final long EQUIV_CACHE_CONTENT_COUNT = 10_000;
+    private static final Duration EQUIV_CACHE_EXPIRY = Duration.standardSeconds(30);
 
     private final ReadPreference readPreference;
     private final Mongo mongo;
@@ -247,12 +257,25 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
 
     @Override
     public ContentWriter contentWriter() {
-        ContentWriter contentWriter = new MongoContentWriter(
-                db, lookupStore(), persistenceAuditLog(),
-                playerResolver(), serviceResolver(), new SystemClock()
+        return contentWriter(mongoContentWriter(), explicitLookupWriter());
+    }
+
+    /**
+     * As {@link #contentWriter()}, but reporting every content and equivalence
+     * write to the given cache. Like the channel store, the cache is passed in so
+     * that the singleton in the Spring MongoContentPersistenceModule is used.
+     */
+    public ContentWriter contentWriter(CachingEquivalentContentResolver equivContentCache) {
+        return contentWriter(
+                new EventFiringContentWriter(mongoContentWriter(), equivContentCache),
+                new CacheInvalidatingLookupWriter(explicitLookupWriter(), equivContentCache)
         );
+    }
 
-        contentWriter = new EquivalenceWritingContentWriter(contentWriter, explicitLookupWriter());
+    private ContentWriter contentWriter(ContentWriter contentWriter, LookupWriter lookupWriter) {
+        contentWriter = new EquivalenceWritingContentWriter(
+                contentWriter, lookupWriter, primaryLookupStore(), true
+        );
         if (messagingEnabled) {
             contentWriter = new MessageQueueingContentWriter(
                     messenger(),
@@ -271,12 +294,26 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
 
     @Override
     public EquivalenceContentWriter nonIdSettingContentWriter() {
-        ContentWriter contentWriter = new MongoContentWriter(
-                db, lookupStore(), persistenceAuditLog(),
-                playerResolver(), serviceResolver(), new SystemClock()
+        return nonIdSettingContentWriter(mongoContentWriter(), explicitLookupWriter());
+    }
+
+    /**
+     * As {@link #nonIdSettingContentWriter()}, but reporting every content and
+     * equivalence write to the given cache.
+     */
+    public EquivalenceContentWriter nonIdSettingContentWriter(
+            CachingEquivalentContentResolver equivContentCache) {
+        return nonIdSettingContentWriter(
+                new EventFiringContentWriter(mongoContentWriter(), equivContentCache),
+                new CacheInvalidatingLookupWriter(explicitLookupWriter(), equivContentCache)
         );
+    }
 
-        EquivalenceContentWriter equivalenceContentWriter = new EquivalenceWritingContentWriter(contentWriter, explicitLookupWriter());
+    private EquivalenceContentWriter nonIdSettingContentWriter(ContentWriter contentWriter,
+            LookupWriter lookupWriter) {
+        EquivalenceContentWriter equivalenceContentWriter = new EquivalenceWritingContentWriter(
+                contentWriter, lookupWriter, primaryLookupStore(), true
+        );
         if (messagingEnabled) {
             equivalenceContentWriter = new MessageQueueingEquivalenceContentWriter(
                     messenger(),
@@ -291,12 +328,26 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
 
     @Override
     public ContentWriter nonIdNoLockSettingContentWriter() {
-        ContentWriter contentWriter = new MongoContentWriter(
-                db, lookupStore(), persistenceAuditLog(),
-                playerResolver(), serviceResolver(), new SystemClock()
+        return nonIdNoLockSettingContentWriter(mongoContentWriter(), explicitNoLockLookupWriter());
+    }
+
+    /**
+     * As {@link #nonIdNoLockSettingContentWriter()}, but reporting every content
+     * and equivalence write to the given cache.
+     */
+    public ContentWriter nonIdNoLockSettingContentWriter(
+            CachingEquivalentContentResolver equivContentCache) {
+        return nonIdNoLockSettingContentWriter(
+                new EventFiringContentWriter(mongoContentWriter(), equivContentCache),
+                new CacheInvalidatingLookupWriter(explicitNoLockLookupWriter(), equivContentCache)
         );
+    }
 
-        contentWriter = new EquivalenceWritingContentWriter(contentWriter, explicitNoLockLookupWriter());
+    private ContentWriter nonIdNoLockSettingContentWriter(ContentWriter contentWriter,
+            LookupWriter lookupWriter) {
+        contentWriter = new EquivalenceWritingContentWriter(
+                contentWriter, lookupWriter, primaryLookupStore(), true
+        );
         if (messagingEnabled) {
             contentWriter = new MessageQueueingContentWriter(
                     messenger(),
@@ -323,6 +374,12 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
                 persistenceAuditLog(), readPreference);
     }
 
+    // equivalence pre-checks must see the latest writes, or they could skip one that is needed
+    private MongoLookupEntryStore primaryLookupStore() {
+        return new MongoLookupEntryStore(db.collection(LOOKUP),
+                persistenceAuditLog(), ReadPreference.primary());
+    }
+
     @Override
     public LookupBackedContentIdGenerator lookupBackedContentIdGenerator() {
         return new LookupBackedContentIdGenerator(lookupStore(), contentIdGenerator());
@@ -366,7 +423,9 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
                     contentResolver(),
                     mongoContentWriter(),
                     equivContentResolver(),
-                    scheduleChanges()
+                    scheduleChanges(),
+                    SCHEDULE_UPDATE_WINDOW,
+                    SCHEDULE_UPDATE_MAX_DELAY
             );
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -377,6 +436,19 @@ public class ConstructorBasedMongoContentPersistenceModule implements ContentPer
         return new DefaultEquivalentContentResolver(knownTypeContentResolver(), lookupStore());
     }
 
+    /**
+     * Writes are only seen by this cache if they go through the writers given
+     * it, so it should be shared with them rather than created per caller.
+     */
+    public CachingEquivalentContentResolver cachingEquivContentResolver() {
+        return new CachingEquivalentContentResolver(
+                equivContentResolver(),
+                EQUIV_CACHE_CONTENT_COUNT,
+                EQUIV_CACHE_EXPIRY.getStandardSeconds(),
+                TimeUnit.SECONDS
+        );
+    }
+
     @Override
     public ItemsPeopleWriter itemsPeopleWriter() {
         return new QueuingItemsPeopleWriter(personWriter(), log);
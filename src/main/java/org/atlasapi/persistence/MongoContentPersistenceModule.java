@@ -20,6 +20,7 @@ import org.atlasapi.messaging.v3.KafkaMessagingModule;
 import org.atlasapi.messaging.v3.MessagingModule;
 import org.atlasapi.messaging.v3.ScheduleUpdateMessage;
 import org.atlasapi.persistence.audit.PersistenceAuditLog;
+import org.atlasapi.persistence.content.CachingEquivalentContentResolver;
 import org.atlasapi.persistence.content.ContentGroupResolver;
 import org.atlasapi.persistence.content.ContentGroupWriter;
 import org.atlasapi.persistence.content.ContentPurger;
@@ -196,19 +197,19 @@ public class MongoContentPersistenceModule implements ContentPersistenceModule {
     @Primary
     @Bean
     public ContentWriter contentWriter() {
-        return persistenceModule().contentWriter();
+        return persistenceModule().contentWriter(cachingEquivContentResolver());
     }
 
     @Override
     @Bean(name = NON_ID_SETTING_CONTENT_WRITER)
     public EquivalenceContentWriter nonIdSettingContentWriter() {
-        return persistenceModule().nonIdSettingContentWriter();
+        return persistenceModule().nonIdSettingContentWriter(cachingEquivContentResolver());
     }
 
     @Override
     @Bean(name = NON_ID_NO_LOCK_SETTING_CONTENT_WRITER)
     public ContentWriter nonIdNoLockSettingContentWriter() {
-        return persistenceModule().nonIdNoLockSettingContentWriter();
+        return persistenceModule().nonIdNoLockSettingContentWriter(cachingEquivContentResolver());
     }
 
     @Override
@@ -264,6 +265,15 @@ public class MongoContentPersistenceModule implements ContentPersistenceModule {
         return persistenceModule().equivContentResolver();
     }
 
+    /**
+     * Not primary, so that consumers which may modify what they resolve, or can't
+     * tolerate the expiry of writes from other nodes, keep resolving directly.
+     */
+    @Bean
+    public CachingEquivalentContentResolver cachingEquivContentResolver() {
+        return persistenceModule().cachingEquivContentResolver();
+    }
+
     @Override
     @Primary
     @Bean
@@ -0,0 +1,224 @@
+package org.atlasapi.persistence.content;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Content;
+import org.atlasapi.media.entity.Identified;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.output.Annotation;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.metabroadcast.applications.client.model.internal.Application;
+
+/**
+ * Caches resolved {@link EquivalentContent} for a short time, keyed by the
+ * requested identifiers, annotations and the application's read configuration.
+ * 
+ * <p>The cache is bounded by the total number of {@link Content} held across all
+ * entries. Entries are dropped as soon as a write to any content they contain, or
+ * to any member of those contents' equivalence sets, is reported to this
+ * resolver, either as a {@link ContentListener} behind an
+ * {@link EventFiringContentWriter} or through {@link #invalidate(Iterable)}. A
+ * resolution that was in flight when one of its URIs was written is not cached.
+ * Writes made on other nodes are only seen once the entry expires, so the expiry
+ * should be kept to the staleness the callers can tolerate.</p>
+ * 
+ * <p>The cache keeps its own copy of the resolved {@link Content} and every hit
+ * is given a fresh copy, so callers may modify what they are given. Alias
+ * resolution is not cached.</p>
+ */
+public class CachingEquivalentContentResolver implements EquivalentContentResolver, ContentListener {
+
+    private final EquivalentContentResolver delegate;
+    private final Cache<EquivalentResolutionKey, CachedResolution> cache;
+    private final ConcurrentMap<String, Set<EquivalentResolutionKey>> keysByUri = new ConcurrentHashMap<>();
+    // when each recently written URI was last invalidated, on the sequence below
+    private final Cache<String, Long> invalidatedAt;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CachingEquivalentContentResolver(EquivalentContentResolver delegate,
+            long maximumContentCount, long expireAfterWrite, TimeUnit unit) {
+        checkArgument(maximumContentCount > 0, "maximumContentCount must be positive");
+        this.delegate = checkNotNull(delegate);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumContentCount)
+                .weigher((EquivalentResolutionKey key, CachedResolution value) -> value.weight)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .removalListener((RemovalNotification<EquivalentResolutionKey, CachedResolution> removal) -> unindex(removal))
+                .build();
+        // a resolution taking longer than an entry lives would not be worth caching anyway
+        this.invalidatedAt = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireAfterWrite, unit)
+                .build();
+    }
+
+    @Override
+    public EquivalentContent resolveUris(Iterable<String> uris, Application application,
+            Set<Annotation> activeAnnotations, boolean withAliases) {
+        return resolve(
+                EquivalentResolutionKey.forUris(uris, withAliases, application, activeAnnotations),
+                () -> delegate.resolveUris(uris, application, activeAnnotations, withAliases)
+        );
+    }
+
+    @Override
+    public EquivalentContent resolveIds(Iterable<Long> ids, Application application,
+            Set<Annotation> activeAnnotations) {
+        return resolve(
+                EquivalentResolutionKey.forIds(ids, application, activeAnnotations),
+                () -> delegate.resolveIds(ids, application, activeAnnotations)
+        );
+    }
+
+    @Override
+    public EquivalentContent resolveAliases(Optional<String> namespace, Iterable<String> values,
+            Application application, Set<Annotation> activeAnnotations) {
+        return delegate.resolveAliases(namespace, values, application, activeAnnotations);
+    }
+
+    /**
+     * Drops every cached resolution that involves any of the given URIs, either
+     * as a requested identifier, as resolved content or as a member of resolved
+     * content's equivalence set.
+     */
+    public void invalidate(Iterable<String> uris) {
+        long now = sequence.incrementAndGet();
+        for (String uri : uris) {
+            invalidatedAt.put(uri, now);
+            Set<EquivalentResolutionKey> keys = keysByUri.remove(uri);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+    }
+
+    @Override
+    public void itemChanged(Iterable<? extends Item> items, ChangeType changeType) {
+        invalidate(Iterables.transform(items, Identified.TO_URI));
+    }
+
+    @Override
+    public void brandChanged(Iterable<? extends Container> containers, ChangeType changeType) {
+        invalidate(Iterables.transform(containers, Identified.TO_URI));
+    }
+
+    private EquivalentContent resolve(EquivalentResolutionKey key, Supplier<EquivalentContent> resolver) {
+        CachedResolution cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return copy(cached.content);
+        }
+        long started = sequence.get();
+        EquivalentContent resolved = resolver.get();
+        CachedResolution resolution = new CachedResolution(key, copy(resolved));
+        if (!invalidatedSince(resolution, started)) {
+            put(key, resolution);
+            // a write may have landed while indexing; don't let it be masked
+            if (invalidatedSince(resolution, started)) {
+                cache.asMap().remove(key, resolution);
+            }
+        }
+        return resolved;
+    }
+
+    private boolean invalidatedSince(CachedResolution resolution, long started) {
+        for (String uri : resolution.uris) {
+            Long invalidated = invalidatedAt.getIfPresent(uri);
+            if (invalidated != null && invalidated > started) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(EquivalentResolutionKey key, CachedResolution resolution) {
+        cache.put(key, resolution);
+        // indexed after the put, so that unindexing the value it replaced
+        // cannot remove the key from URIs this value needs
+        for (String uri : resolution.uris) {
+            keysByUri.computeIfAbsent(uri, u -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        if (cache.asMap().get(key) != resolution) {
+            // evicted or replaced already, and its removal may have been handled before indexing
+            unindex(key, resolution);
+        }
+    }
+
+    private void unindex(RemovalNotification<EquivalentResolutionKey, CachedResolution> removal) {
+        if (removal.getKey() != null && removal.getValue() != null) {
+            unindex(removal.getKey(), removal.getValue());
+        }
+    }
+
+    private void unindex(EquivalentResolutionKey key, CachedResolution removed) {
+        // the key may already hold a newer resolution, whose URIs must stay indexed
+        CachedResolution current = cache.asMap().get(key);
+        for (String uri : removed.uris) {
+            if (current != null && current.uris.contains(uri)) {
+                continue;
+            }
+            keysByUri.computeIfPresent(uri, (u, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static EquivalentContent copy(EquivalentContent content) {
+        EquivalentContent.Builder copy = EquivalentContent.builder();
+        for (Map.Entry<String, Collection<Content>> entry : content.asMap().entrySet()) {
+            ImmutableList.Builder<Content> equivalents = ImmutableList.builder();
+            for (Content equivalent : entry.getValue()) {
+                equivalents.add((Content) equivalent.copy());
+            }
+            copy.putEquivalents(entry.getKey(), equivalents.build());
+        }
+        return copy.build();
+    }
+
+    private static final class CachedResolution {
+
+        private final EquivalentContent content;
+        private final ImmutableSet<String> uris;
+        private final int weight;
+
+        CachedResolution(EquivalentResolutionKey key, EquivalentContent content) {
+            this.content = content;
+            ImmutableSet.Builder<String> uris = ImmutableSet.builder();
+            if (key.isForUris()) {
+                for (Object identifier : key.identifiers()) {
+                    uris.add((String) identifier);
+                }
+            }
+            int weight = 0;
+            for (Collection<Content> equivalents : content.asMap().values()) {
+                for (Content equivalent : equivalents) {
+                    uris.add(equivalent.getCanonicalUri());
+                    for (LookupRef ref : equivalent.getEquivalentTo()) {
+                        uris.add(ref.uri());
+                    }
+                    weight++;
+                }
+            }
+            this.uris = uris.build();
+            this.weight = Math.max(1, weight);
+        }
+    }
+}
@@ -36,6 +36,8 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.Nullable;
+
 import static org.atlasapi.output.Annotation.RESPECT_API_KEY_FOR_EQUIV_LIST;
 
 public class DefaultEquivalentContentResolver implements EquivalentContentResolver {
@@ -44,13 +46,31 @@ public class DefaultEquivalentContentResolver implements EquivalentContentResolv
     private LookupEntryStore lookupResolver;
     private final Ordering<LookupRef> nullSafeRefById = Ordering.natural().onResultOf(LookupRef.TO_ID).nullsLast();
     private final Logger log = LoggerFactory.getLogger(DefaultEquivalentContentResolver.class);
+    @Nullable private final InFlightRequests<EquivalentResolutionKey, EquivalentContent> inFlight;
 
     public DefaultEquivalentContentResolver(
             KnownTypeContentResolver contentResolver,
             LookupEntryStore lookupResolver
+    ) {
+        this(contentResolver, lookupResolver, false);
+    }
+
+    /**
+     * @param coalesceRequests
+     *            when true, concurrent {@link #resolveUris} and {@link #resolveIds} calls
+     *            for the same identifiers, annotations and application read
+     *            configuration share a single resolution. The callers then receive
+     *            the same {@link Content} instances, so this should only be enabled
+     *            where results are treated as read-only.
+     */
+    public DefaultEquivalentContentResolver(
+            KnownTypeContentResolver contentResolver,
+            LookupEntryStore lookupResolver,
+            boolean coalesceRequests
     ) {
         this.contentResolver = contentResolver;
         this.lookupResolver = lookupResolver;
+        this.inFlight = coalesceRequests ? new InFlightRequests<>() : null;
     }
     
     @Override
@@ -59,6 +79,21 @@ public class DefaultEquivalentContentResolver implements EquivalentContentResolv
             Application application,
             Set<Annotation> activeAnnotations,
             boolean withAliases
+    ) {
+        if (inFlight == null) {
+            return doResolveUris(uris, application, activeAnnotations, withAliases);
+        }
+        return inFlight.execute(
+                EquivalentResolutionKey.forUris(uris, withAliases, application, activeAnnotations),
+                () -> doResolveUris(uris, application, activeAnnotations, withAliases)
+        );
+    }
+
+    private EquivalentContent doResolveUris(
+            Iterable<String> uris,
+            Application application,
+            Set<Annotation> activeAnnotations,
+            boolean withAliases
     ) {
         Iterable<LookupEntry> entries = lookupResolver.entriesForIdentifiers(uris, withAliases);
         return filterAndResolveEntries(ImmutableSet.copyOf(entries), uris, application, activeAnnotations);
@@ -69,6 +104,20 @@ public class DefaultEquivalentContentResolver implements EquivalentContentResolv
             Iterable<Long> ids,
             Application application,
             Set<Annotation> activeAnnotations
+    ) {
+        if (inFlight == null) {
+            return doResolveIds(ids, application, activeAnnotations);
+        }
+        return inFlight.execute(
+                EquivalentResolutionKey.forIds(ids, application, activeAnnotations),
+                () -> doResolveIds(ids, application, activeAnnotations)
+        );
+    }
+
+    private EquivalentContent doResolveIds(
+            Iterable<Long> ids,
+            Application application,
+            Set<Annotation> activeAnnotations
     ) {
         Iterable<LookupEntry> entries = lookupResolver.entriesForIds(ids);
         Set<String> uris = Sets.newHashSet();
@@ -0,0 +1,103 @@
+package org.atlasapi.persistence.content;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.atlasapi.media.entity.Content;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+/**
+ * Tells whether the equivalents asserted by a piece of content are already
+ * recorded in its lookup entry, judged the way
+ * {@link org.atlasapi.persistence.lookup.TransitiveLookupWriter} does: only
+ * neighbours from the affected sources are compared. This lets writers skip a
+ * lookup write, and its locking, that would change nothing.
+ */
+final class EquivalenceAssertionCheck {
+
+    private final LookupEntryStore entryStore;
+    private final boolean explicit;
+
+    EquivalenceAssertionCheck(LookupEntryStore entryStore, boolean explicit) {
+        this.entryStore = checkNotNull(entryStore);
+        this.explicit = explicit;
+    }
+
+    /**
+     * The sources whose neighbours a write of the content's equivalents affects.
+     */
+    static Set<Publisher> sourcesFor(Content content, @Nullable Set<Publisher> publishers) {
+        ImmutableSet<Publisher> contentSources = ImmutableSet.<Publisher>builder()
+                .add(content.getPublisher())
+                .addAll(Iterables.transform(content.getEquivalentTo(), LookupRef.TO_SOURCE))
+                .build();
+        return publishers == null
+               ? contentSources
+               : ImmutableSet.copyOf(Sets.union(publishers, contentSources));
+    }
+
+    /**
+     * Reads the content's lookup entry once and compares its recorded
+     * equivalents, from the given sources, with those the content asserts.
+     */
+    Outcome check(Content content, Set<Publisher> sources) {
+        LookupEntry entry = Iterables.getFirst(
+                entryStore.entriesForCanonicalUris(ImmutableSet.of(content.getCanonicalUri())),
+                null
+        );
+        return new Outcome(entry, entry != null && unchanged(content, sources, entry));
+    }
+
+    private boolean unchanged(Content content, Set<Publisher> sources, LookupEntry entry) {
+        ImmutableSet.Builder<String> asserted = ImmutableSet.<String>builder()
+                .add(content.getCanonicalUri());
+        for (LookupRef ref : content.getEquivalentTo()) {
+            if (sources.contains(ref.publisher())) {
+                asserted.add(ref.uri());
+            }
+        }
+        ImmutableSet.Builder<String> recorded = ImmutableSet.builder();
+        for (LookupRef ref : explicit ? entry.explicitEquivalents() : entry.directEquivalents()) {
+            if (sources.contains(ref.publisher())) {
+                recorded.add(ref.uri());
+            }
+        }
+        return asserted.build().equals(recorded.build());
+    }
+
+    /**
+     * The result of a check, with the entry it read so that callers need not
+     * read it again.
+     */
+    static final class Outcome {
+
+        @Nullable private final LookupEntry entry;
+        private final boolean unchanged;
+
+        private Outcome(@Nullable LookupEntry entry, boolean unchanged) {
+            this.entry = entry;
+            this.unchanged = unchanged;
+        }
+
+        /**
+         * The content's entry as it was before any write, or null if it has none.
+         */
+        @Nullable LookupEntry entry() {
+            return entry;
+        }
+
+        boolean unchanged() {
+            return unchanged;
+        }
+    }
+}
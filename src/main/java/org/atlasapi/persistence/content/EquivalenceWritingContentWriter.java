@@ -1,9 +1,7 @@
 package org.atlasapi.persistence.content;
 
 import com.google.common.base.Function;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import org.atlasapi.equiv.ContentRef;
 import org.atlasapi.media.entity.Container;
 import org.atlasapi.media.entity.Content;
@@ -11,6 +9,7 @@ import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.LookupRef;
 import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.persistence.lookup.LookupWriter;
+import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,10 +23,25 @@ public class EquivalenceWritingContentWriter implements EquivalenceContentWriter
 
     private final ContentWriter delegate;
     private final LookupWriter equivalenceWriter;
+    @Nullable private final EquivalenceAssertionCheck assertionCheck;
 
     public EquivalenceWritingContentWriter(ContentWriter delegate, LookupWriter lookupWriter) {
         this.delegate = delegate;
         this.equivalenceWriter = lookupWriter;
+        this.assertionCheck = null;
+    }
+
+    /**
+     * Skips the lookup write when the content's equivalents match those already
+     * in its entry in the store, which must be the one the lookup writer writes
+     * to. {@code explicit} says whether the lookup writer records explicit or
+     * direct equivalents.
+     */
+    public EquivalenceWritingContentWriter(ContentWriter delegate, LookupWriter lookupWriter,
+            LookupEntryStore lookupEntryStore, boolean explicit) {
+        this.delegate = delegate;
+        this.equivalenceWriter = lookupWriter;
+        this.assertionCheck = new EquivalenceAssertionCheck(lookupEntryStore, explicit);
     }
 
     @Override
@@ -37,23 +51,53 @@ public class EquivalenceWritingContentWriter implements EquivalenceContentWriter
 
     @Override
     public Item createOrUpdate(Item item, @Nullable Set<Publisher> publishers, boolean writeEquivalencesIfEmpty) {
+        return createOrUpdate(item, publishers, writeEquivalencesIfEmpty, null);
+    }
+
+    /**
+     * Writes the item using the outcome of an earlier
+     * {@link #checkEquivalences(Content, Set)}, so the entry is not read again.
+     */
+    Item createOrUpdate(Item item, @Nullable Set<Publisher> publishers, boolean writeEquivalencesIfEmpty,
+            @Nullable EquivalenceAssertionCheck.Outcome checked) {
         Long lastTime = System.nanoTime();
         timerLog.debug("TIMER EQ entered. {} {}",item.getId(), Thread.currentThread().getName());
         Item writtenItem = delegate.createOrUpdate(item);
         timerLog.debug("TIMER EQ Delegate finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",item.getId(), Thread.currentThread().getName());
         lastTime = System.nanoTime();
-        writeEquivalences(item, publishers, writeEquivalencesIfEmpty);
+        writeEquivalences(item, publishers, writeEquivalencesIfEmpty, checked);
         timerLog.debug("TIMER EQ Local work finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",item.getId(), Thread.currentThread().getName());
         return writtenItem;
     }
 
+    /**
+     * Checks the content's equivalents against its stored entry, if this writer
+     * was given a store to check against, and otherwise returns null.
+     */
+    @Nullable EquivalenceAssertionCheck.Outcome checkEquivalences(Content content,
+            @Nullable Set<Publisher> publishers) {
+        if (assertionCheck == null) {
+            return null;
+        }
+        return assertionCheck.check(content, EquivalenceAssertionCheck.sourcesFor(content, publishers));
+    }
+
     private void writeEquivalences(
             Content content,
             @Nullable Set<Publisher> publishers,
-            boolean writeEquivalencesIfEmpty
-
+            boolean writeEquivalencesIfEmpty,
+            @Nullable EquivalenceAssertionCheck.Outcome checked
     ) {
         if (writeEquivalencesIfEmpty || !content.getEquivalentTo().isEmpty()) {
+            Set<Publisher> sources = EquivalenceAssertionCheck.sourcesFor(content, publishers);
+            EquivalenceAssertionCheck.Outcome outcome = checked;
+            if (outcome == null && assertionCheck != null) {
+                outcome = assertionCheck.check(content, sources);
+            }
+            if (outcome != null && outcome.unchanged()) {
+                log.debug("{} equivalences unchanged", content.getCanonicalUri());
+                return;
+            }
             Iterable<ContentRef> equivalentUris = Iterables.transform(content.getEquivalentTo(),
                 new Function<LookupRef, ContentRef>() {
                     @Override
@@ -64,20 +108,11 @@ public class EquivalenceWritingContentWriter implements EquivalenceContentWriter
             equivalenceWriter.writeLookup(
                     ContentRef.valueOf(content),
                     equivalentUris,
-                    publishers == null
-                            ? publishers(content)
-                            : ImmutableSet.copyOf(Sets.union(publishers, publishers(content)))
+                    sources
             );
         }
     }
 
-    private ImmutableSet<Publisher> publishers(Content content) {
-        return ImmutableSet.<Publisher>builder()
-                .add(content.getPublisher())
-                .addAll(Iterables.transform(content.getEquivalentTo(), LookupRef.TO_SOURCE))
-                .build();
-    }
-
     @Override
     public void createOrUpdate(Container container) {
         createOrUpdate(container, null, false);
@@ -85,12 +120,17 @@ public class EquivalenceWritingContentWriter implements EquivalenceContentWriter
 
     @Override
     public void createOrUpdate(Container container, @Nullable Set<Publisher> publishers, boolean writeEquivalencesIfEmpty) {
+        createOrUpdate(container, publishers, writeEquivalencesIfEmpty, null);
+    }
+
+    void createOrUpdate(Container container, @Nullable Set<Publisher> publishers,
+            boolean writeEquivalencesIfEmpty, @Nullable EquivalenceAssertionCheck.Outcome checked) {
         Long lastTime = System.nanoTime();
         timerLog.debug("TIMER EQ entered. {} {}",container.getId(), Thread.currentThread().getName());
         delegate.createOrUpdate(container);
         timerLog.debug("TIMER EQ Delegate finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",container.getCanonicalUri(), Thread.currentThread().getName());
         lastTime = System.nanoTime();
-        writeEquivalences(container, publishers, writeEquivalencesIfEmpty);
+        writeEquivalences(container, publishers, writeEquivalencesIfEmpty, checked);
         timerLog.debug("TIMER EQ Local work finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",container.getCanonicalUri(), Thread.currentThread().getName());
     }
 
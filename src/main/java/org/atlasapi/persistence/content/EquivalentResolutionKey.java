@@ -0,0 +1,110 @@
+package org.atlasapi.persistence.content;
+
+import java.util.Set;
+
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.output.Annotation;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
+import com.metabroadcast.applications.client.model.internal.Application;
+import com.metabroadcast.applications.client.model.internal.ApplicationConfiguration;
+
+/**
+ * Identifies an equivalent content resolution by what was asked for and by
+ * everything about the application that affects the answer: its enabled read
+ * sources and, when precedence is on, their order. Two applications with the
+ * same read configuration produce equal keys; any difference keeps them apart.
+ */
+final class EquivalentResolutionKey {
+
+    enum IdentifierType {
+        URIS,
+        URIS_AND_ALIASES,
+        IDS,
+    }
+
+    static EquivalentResolutionKey forUris(Iterable<String> uris, boolean withAliases,
+            Application application, Set<Annotation> annotations) {
+        return new EquivalentResolutionKey(
+                withAliases ? IdentifierType.URIS_AND_ALIASES : IdentifierType.URIS,
+                ImmutableSet.copyOf(uris),
+                application,
+                annotations
+        );
+    }
+
+    static EquivalentResolutionKey forIds(Iterable<Long> ids, Application application,
+            Set<Annotation> annotations) {
+        return new EquivalentResolutionKey(
+                IdentifierType.IDS,
+                ImmutableSet.copyOf(ids),
+                application,
+                annotations
+        );
+    }
+
+    private final IdentifierType identifierType;
+    private final ImmutableSet<?> identifiers;
+    private final boolean precedenceEnabled;
+    private final ImmutableList<Publisher> readSources;
+    private final ImmutableSet<Annotation> annotations;
+    private final int hashCode;
+
+    private EquivalentResolutionKey(IdentifierType identifierType, ImmutableSet<?> identifiers,
+            Application application, Set<Annotation> annotations) {
+        ApplicationConfiguration configuration = application.getConfiguration();
+        this.identifierType = identifierType;
+        this.identifiers = identifiers;
+        this.precedenceEnabled = configuration.isPrecedenceEnabled();
+        this.readSources = precedenceEnabled
+                ? ImmutableList.copyOf(configuration.getReadPrecedenceOrdering()
+                        .sortedCopy(configuration.getEnabledReadSources()))
+                : Ordering.<Publisher>natural().immutableSortedCopy(configuration.getEnabledReadSources());
+        this.annotations = ImmutableSet.copyOf(annotations);
+        this.hashCode = Objects.hashCode(identifierType, identifiers, precedenceEnabled,
+                readSources, this.annotations);
+    }
+
+    ImmutableSet<?> identifiers() {
+        return identifiers;
+    }
+
+    boolean isForUris() {
+        return identifierType != IdentifierType.IDS;
+    }
+
+    @Override
+    public boolean equals(Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (that instanceof EquivalentResolutionKey) {
+            EquivalentResolutionKey other = (EquivalentResolutionKey) that;
+            return hashCode == other.hashCode
+                && identifierType == other.identifierType
+                && precedenceEnabled == other.precedenceEnabled
+                && identifiers.equals(other.identifiers)
+                && readSources.equals(other.readSources)
+                && annotations.equals(other.annotations);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("type", identifierType)
+                .add("identifiers", identifiers)
+                .add("precedence", precedenceEnabled)
+                .add("sources", readSources)
+                .toString();
+    }
+}
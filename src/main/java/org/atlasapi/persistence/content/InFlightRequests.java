@@ -0,0 +1,50 @@
+package org.atlasapi.persistence.content;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Collapses concurrent requests for the same key into a single computation.
+ * The first caller for a key computes the value; callers arriving while it is
+ * in progress wait for and share that result. Nothing is retained once the
+ * computation finishes, so a later caller always computes afresh.
+ */
+final class InFlightRequests<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V result = computation.get();
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.atlasapi.media.entity.Content;
 import org.atlasapi.media.entity.Item;
 import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessenger;
 import org.atlasapi.messaging.v3.EntityUpdatedMessage;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
 import org.atlasapi.persistence.media.entity.ContainerTranslator;
 import org.atlasapi.persistence.media.entity.ItemTranslator;
 import org.slf4j.Logger;
@@ -22,6 +23,8 @@ import org.slf4j.LoggerFactory;
 import java.math.BigInteger;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class MessageQueueingContentWriter implements ContentWriter {
@@ -93,8 +96,23 @@ public class MessageQueueingContentWriter implements ContentWriter {
     }
 
     protected void enqueueMessageUpdatedMessage(final Content content, boolean messageIfEmptyEquivalences) {
+        enqueueMessageUpdatedMessage(content, messageIfEmptyEquivalences, null);
+    }
+
+    /**
+     * @param checked the outcome of checking the content's equivalents against
+     *        the store before they were written, if they were checked. No
+     *        assertion is sent if they were found unchanged, and otherwise the
+     *        entry read for the check gives the assertion's partition key.
+     */
+    void enqueueMessageUpdatedMessage(
+            final Content content,
+            boolean messageIfEmptyEquivalences,
+            @Nullable EquivalenceAssertionCheck.Outcome checked
+    ) {
         try {
-            if(messageIfEmptyEquivalences || !content.getEquivalentTo().isEmpty()){
+            if ((checked == null || !checked.unchanged())
+                    && (messageIfEmptyEquivalences || !content.getEquivalentTo().isEmpty())) {
                 ImmutableList<Content> adjacents = content.getEquivalentTo()
                         .stream()
                         .map(lookupRef -> contentResolver
@@ -110,11 +128,12 @@ public class MessageQueueingContentWriter implements ContentWriter {
                         .map(lookupRef -> lookupRef.publisher().key())
                         .collect(MoreCollectors.toImmutableSet());
 
-                messenger.sendMessage(
-                        content,
-                        adjacents,
-                        sources
-                );
+                LookupEntry subjectEntry = checked != null ? checked.entry() : null;
+                if (subjectEntry != null) {
+                    messenger.sendMessage(content, adjacents, sources, subjectEntry);
+                } else {
+                    messenger.sendMessage(content, adjacents, sources);
+                }
             }
             sender.sendMessage(
                     createEntityUpdatedMessage(content), Longs.toByteArray(content.getId())
@@ -4,6 +4,7 @@ import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.time.SystemClock;
 import com.metabroadcast.common.time.Timestamper;
 import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Content;
 import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessenger;
@@ -13,11 +14,17 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * An extension of the MessageQueueingContentWriter which allows for writing empty equivalence sets
  * The constructor requires a different type signature for the ContentWriter which is why we created a sub-class
+ *
+ * If the delegate is an {@link EquivalenceWritingContentWriter} that checks equivalents
+ * against the store, its check is made once, here, and shared with the delegate. No
+ * equivalence assertion is sent for content whose equivalents are unchanged.
  */
 public class MessageQueueingEquivalenceContentWriter extends MessageQueueingContentWriter implements EquivalenceContentWriter {
 
@@ -56,14 +63,19 @@ public class MessageQueueingEquivalenceContentWriter extends MessageQueueingCont
     public Item createOrUpdate(Item item, Set<Publisher> publishers, boolean writeEquivalencesIfEmpty) {
         long lastTime = System.nanoTime();
         timerLog.debug("TIMER MQ entered. {} {}",item.getId(), Thread.currentThread().getName());
-        Item writtenItem = equivalenceContentWriter.createOrUpdate(item, publishers, writeEquivalencesIfEmpty);
+        // checked before the delegate records the equivalents
+        EquivalenceAssertionCheck.Outcome checked = checkEquivalences(item, publishers, writeEquivalencesIfEmpty);
+        Item writtenItem = checked != null
+                           ? ((EquivalenceWritingContentWriter) equivalenceContentWriter)
+                                   .createOrUpdate(item, publishers, writeEquivalencesIfEmpty, checked)
+                           : equivalenceContentWriter.createOrUpdate(item, publishers, writeEquivalencesIfEmpty);
         timerLog.debug("TIMER MQ Delegate finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",item.getId(), Thread.currentThread().getName());
         lastTime = System.nanoTime();
         if (!item.hashChanged(itemTranslator.hashCodeOf(item))) {
             log.debug("{} not changed", item.getCanonicalUri());
             return writtenItem;
         }
-        enqueueMessageUpdatedMessage(item, writeEquivalencesIfEmpty);
+        enqueueMessageUpdatedMessage(item, writeEquivalencesIfEmpty, checked);
 
         timerLog.debug("TIMER MQ local work finished "+Long.toString((System.nanoTime() - lastTime)/1000000)+"ms. {} {}",item.getId(), Thread.currentThread().getName());
         return writtenItem;
@@ -71,12 +83,30 @@ public class MessageQueueingEquivalenceContentWriter extends MessageQueueingCont
 
     @Override
     public void createOrUpdate(Container container, Set<Publisher> publishers, boolean writeEquivalencesIfEmpty) {
-        equivalenceContentWriter.createOrUpdate(container, publishers, writeEquivalencesIfEmpty);
+        EquivalenceAssertionCheck.Outcome checked = checkEquivalences(container, publishers, writeEquivalencesIfEmpty);
+        if (checked != null) {
+            ((EquivalenceWritingContentWriter) equivalenceContentWriter)
+                    .createOrUpdate(container, publishers, writeEquivalencesIfEmpty, checked);
+        } else {
+            equivalenceContentWriter.createOrUpdate(container, publishers, writeEquivalencesIfEmpty);
+        }
         if (!container.hashChanged(containerTranslator.hashCodeOf(container))) {
             log.debug("{} un-changed", container.getCanonicalUri());
             return;
         }
-        enqueueMessageUpdatedMessage(container, writeEquivalencesIfEmpty);
+        enqueueMessageUpdatedMessage(container, writeEquivalencesIfEmpty, checked);
+    }
+
+    // null unless equivalents will be written and the delegate checks them
+    @Nullable
+    private EquivalenceAssertionCheck.Outcome checkEquivalences(Content content,
+            @Nullable Set<Publisher> publishers, boolean writeEquivalencesIfEmpty) {
+        if (!(equivalenceContentWriter instanceof EquivalenceWritingContentWriter)
+                || (!writeEquivalencesIfEmpty && content.getEquivalentTo().isEmpty())) {
+            return null;
+        }
+        return ((EquivalenceWritingContentWriter) equivalenceContentWriter)
+                .checkEquivalences(content, publishers);
     }
 
 }
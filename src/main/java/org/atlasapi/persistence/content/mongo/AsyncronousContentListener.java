@@ -1,91 +1,215 @@
 package org.atlasapi.persistence.content.mongo;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 
 import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Content;
 import org.atlasapi.media.entity.Item;
 import org.atlasapi.persistence.content.ContentListener;
 import org.atlasapi.persistence.logging.AdapterLog;
 import org.atlasapi.persistence.logging.AdapterLogEntry;
 import org.atlasapi.persistence.logging.AdapterLogEntry.Severity;
 
-import com.metabroadcast.common.concurrency.BoundedExecutor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+/**
+ * Passes changes to the delegate listener on a pool of worker threads.
+ *
+ * Changes wait in a bounded queue, and a caller blocks while it is full, so a
+ * burst of writes is slowed to the rate the delegate keeps up with rather than
+ * piling up. Each worker takes the next change together with any directly
+ * behind it of the same kind and change type, up to a batch size, and passes
+ * them to the delegate in one call, so bursts of small changes become fewer,
+ * larger callbacks.
+ *
+ * The delegates are typically Mongo writers, which spend most of their time
+ * waiting on the database, so by default there are several workers per
+ * processor. Changes made after {@link #shutDown()} are logged and dropped.
+ */
 public class AsyncronousContentListener implements ContentListener {
-    
+
+    private static final int DEFAULT_WORKERS_PER_PROCESSOR = 4;
+    private static final int QUEUE_CAPACITY_PER_WORKER = 32;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
     private final ContentListener delegate;
-    private final ExecutorService executor = Executors.newFixedThreadPool(100);
-    private final BoundedExecutor boundedQueue = new BoundedExecutor(executor, 100);
     private final AdapterLog log;
-    
+    private final int maxBatchSize;
+    private final BlockingQueue<Change> queue;
+    // held while taking a batch, so that batches are made of adjacent changes
+    private final Lock takeLock = new ReentrantLock();
+    private final ExecutorService executor;
+    private volatile boolean running = true;
+
     public AsyncronousContentListener(ContentListener delegate, AdapterLog log) {
+        this(delegate, log, Runtime.getRuntime().availableProcessors() * DEFAULT_WORKERS_PER_PROCESSOR);
+    }
+
+    public AsyncronousContentListener(ContentListener delegate, AdapterLog log, int workers) {
+        this(delegate, log, workers, workers * QUEUE_CAPACITY_PER_WORKER, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public AsyncronousContentListener(ContentListener delegate, AdapterLog log, int workers,
+            int queueCapacity, int maxBatchSize) {
+        checkArgument(workers > 0, "workers must be positive");
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
         this.delegate = delegate;
         this.log = log;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.executor = Executors.newFixedThreadPool(
+                workers,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("async-content-listener-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
     }
-    
+
+    /**
+     * Stops the workers once the changes already queued have been passed on.
+     */
     @PreDestroy
     public void shutDown() {
+        running = false;
         executor.shutdown();
     }
 
-    @Override
-    public void brandChanged(Iterable<? extends Container> container, ChangeType changeType) {
-        try {
-            boundedQueue.submitTask(new BrandChangedJob(container, changeType));
-        } catch (Exception e) {
-            log.record(new AdapterLogEntry(Severity.ERROR).withCause(e).withSource(AsyncronousContentListener.class));
-        }
+    /**
+     * @return the number of changes waiting for a worker
+     */
+    public int queueDepth() {
+        return queue.size();
     }
 
     @Override
-    public void itemChanged(Iterable<? extends Item> item, ChangeType changeType) {
-        try {
-            boundedQueue.submitTask(new ItemChangedJob(item, changeType));
-        } catch (Exception e) {
-            log.record(new AdapterLogEntry(Severity.ERROR).withCause(e).withSource(AsyncronousContentListener.class));
-        }
+    public void brandChanged(Iterable<? extends Container> containers, ChangeType changeType) {
+        enqueue(new Change(false, containers, changeType));
     }
 
-    class ItemChangedJob implements Runnable {
-        
-        private final Iterable<? extends Item> items;
-        private final ChangeType changeType;
+    @Override
+    public void itemChanged(Iterable<? extends Item> items, ChangeType changeType) {
+        enqueue(new Change(true, items, changeType));
+    }
 
-        public ItemChangedJob(Iterable<? extends Item> items, ChangeType changeType) {
-            this.items = items;
-            this.changeType = changeType;
+    private void enqueue(Change change) {
+        if (!running) {
+            logDropped(change);
+            return;
+        }
+        try {
+            queue.put(change);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logError(e);
+            return;
         }
+        // the workers may have drained the queue and stopped since the check above
+        if (!running && queue.remove(change)) {
+            logDropped(change);
+        }
+    }
 
-        @Override
-        public void run() {
+    private void work() {
+        while (running || !queue.isEmpty()) {
             try {
-                delegate.itemChanged(items, changeType);
+                List<Change> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                log.record(new AdapterLogEntry(Severity.ERROR).withCause(e).withSource(AsyncronousContentListener.class));
+                logError(e);
             }
         }
     }
-    
-    class BrandChangedJob implements Runnable {
-        
-        private final Iterable<? extends Container> containers;
-        private final ChangeType changeType;
-
-        public BrandChangedJob(Iterable<? extends Container> containers, ChangeType changeType) {
-            this.containers = containers;
+
+    private List<Change> takeBatch() throws InterruptedException {
+        takeLock.lockInterruptibly();
+        try {
+            Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return ImmutableList.of();
+            }
+            List<Change> batch = Lists.newArrayList(first);
+            int size = first.size();
+            Change next;
+            while ((next = queue.peek()) != null
+                    && first.canJoin(next)
+                    && size + next.size() <= maxBatchSize) {
+                batch.add(queue.poll());
+                size += next.size();
+            }
+            return batch;
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(List<Change> batch) {
+        Change first = batch.get(0);
+        ImmutableList.Builder<Content> builder = ImmutableList.builder();
+        for (Change change : batch) {
+            builder.addAll(change.contents);
+        }
+        Iterable<Content> contents = builder.build();
+        if (first.items) {
+            delegate.itemChanged((Iterable<Item>) (Iterable<?>) contents, first.changeType);
+        } else {
+            delegate.brandChanged((Iterable<Container>) (Iterable<?>) contents, first.changeType);
+        }
+    }
+
+    private void logDropped(Change change) {
+        log.record(new AdapterLogEntry(Severity.WARN)
+                .withDescription("Dropped %s changes made after shut down", change.size())
+                .withSource(AsyncronousContentListener.class));
+    }
+
+    private void logError(Exception e) {
+        log.record(new AdapterLogEntry(Severity.ERROR).withCause(e).withSource(AsyncronousContentListener.class));
+    }
+
+    private static final class Change {
+
+        private final boolean items;
+        private final ImmutableList<? extends Content> contents;
+        @Nullable private final ChangeType changeType;
+
+        private Change(boolean items, Iterable<? extends Content> contents,
+                @Nullable ChangeType changeType) {
+            this.items = items;
+            this.contents = ImmutableList.copyOf(contents);
             this.changeType = changeType;
         }
 
-        @Override
-        public void run() {
-            try {
-                delegate.brandChanged(containers, changeType);
-            } catch (Exception e) {
-                log.record(new AdapterLogEntry(Severity.ERROR).withCause(e).withSource(AsyncronousContentListener.class));
-            }
+        private int size() {
+            return contents.size();
+        }
+
+        private boolean canJoin(Change other) {
+            return items == other.items && changeType == other.changeType;
         }
     }
 }
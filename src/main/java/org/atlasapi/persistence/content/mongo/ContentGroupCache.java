@@ -0,0 +1,82 @@
+package org.atlasapi.persistence.content.mongo;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.atlasapi.media.entity.ContentGroup;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.DBObject;
+
+/**
+ * A bounded, expiring cache of stored content group documents, shared by a
+ * {@link MongoContentGroupResolver} and the {@link MongoContentGroupWriter}
+ * that invalidates it. Documents are cached rather than translated groups so
+ * that every read gets its own {@link ContentGroup}.
+ * 
+ * Writes made through other writers, or on other nodes, are only seen once
+ * entries expire.
+ */
+public class ContentGroupCache {
+
+    private final Cache<Long, DBObject> byId;
+    private final Cache<String, Long> idsByUri;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ContentGroupCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        checkArgument(maximumSize > 0, "maximumSize must be positive");
+        this.byId = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .build();
+        this.idsByUri = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .build();
+    }
+
+    public void invalidate(ContentGroup contentGroup) {
+        invalidations.incrementAndGet();
+        if (contentGroup.getId() != null) {
+            byId.invalidate(contentGroup.getId());
+        }
+        if (contentGroup.getCanonicalUri() != null) {
+            idsByUri.invalidate(contentGroup.getCanonicalUri());
+        }
+    }
+
+    @Nullable
+    DBObject forId(Long id) {
+        return byId.getIfPresent(id);
+    }
+
+    @Nullable
+    DBObject forUri(String uri) {
+        Long id = idsByUri.getIfPresent(uri);
+        return id == null ? null : byId.getIfPresent(id);
+    }
+
+    /**
+     * A token to pass to {@link #put(long, Long, String, DBObject)} once the
+     * document has been read, so that documents loaded before an invalidation
+     * are not cached.
+     */
+    long generation() {
+        return invalidations.get();
+    }
+
+    void put(long generation, Long id, @Nullable String uri, DBObject dbo) {
+        if (generation != invalidations.get()) {
+            return;
+        }
+        byId.put(id, dbo);
+        if (uri != null) {
+            idsByUri.put(uri, id);
+        }
+    }
+}
@@ -1,71 +1,144 @@
 package org.atlasapi.persistence.content.mongo;
 
-import org.atlasapi.persistence.content.ResolvedContent;
-import org.atlasapi.persistence.content.ResolvedContent.ResolvedContentBuilder;
-import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
-import com.mongodb.DBCollection;
-import com.mongodb.DBObject;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
 import org.atlasapi.media.entity.ContentGroup;
 import org.atlasapi.persistence.content.ContentCategory;
 import org.atlasapi.persistence.content.ContentGroupResolver;
+import org.atlasapi.persistence.content.ResolvedContent;
+import org.atlasapi.persistence.content.ResolvedContent.ResolvedContentBuilder;
 import org.atlasapi.persistence.media.entity.ContentGroupTranslator;
 import org.atlasapi.persistence.media.entity.IdentifiedTranslator;
-import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
-import com.mongodb.DBCursor;
-import java.util.HashSet;
-import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.translator.TranslatorUtils;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 
 public class MongoContentGroupResolver implements ContentGroupResolver {
 
     private final ContentGroupTranslator contentGroupTranslator;
     private final DBCollection contentGroups;
+    @Nullable private final ContentGroupCache cache;
 
     public MongoContentGroupResolver(DatabasedMongo mongo) {
+        this(mongo, null);
+    }
+
+    /**
+     * @param cache if given, documents are served from and added to it; it should
+     *        be shared with the {@link MongoContentGroupWriter} writing the groups.
+     */
+    public MongoContentGroupResolver(DatabasedMongo mongo, @Nullable ContentGroupCache cache) {
         MongoContentTables contentTables = new MongoContentTables(mongo);
         this.contentGroups = contentTables.collectionFor(ContentCategory.CONTENT_GROUP);
         this.contentGroupTranslator = new ContentGroupTranslator();
+        this.cache = cache;
     }
 
     @Override
     public ResolvedContent findByCanonicalUris(Iterable<String> uris) {
-        ResolvedContentBuilder results = ResolvedContent.builder();
-
-        for (String uri : uris) {
-            DBObject found = contentGroups.findOne(where().fieldEquals(IdentifiedTranslator.CANONICAL_URL, uri).build());
-            if (found != null) {
-                ContentGroup contentGroup = contentGroupTranslator.fromDBObject(found, new ContentGroup());
-                results.put(uri, contentGroup);
+        Set<String> requested = ImmutableSet.copyOf(uris);
+        Map<String, DBObject> found = Maps.newHashMapWithExpectedSize(requested.size());
+        Set<String> toFetch = Sets.newHashSet();
+        for (String uri : requested) {
+            DBObject cached = cache != null ? cache.forUri(uri) : null;
+            if (cached != null) {
+                found.put(uri, cached);
+            } else {
+                toFetch.add(uri);
+            }
+        }
+        if (!toFetch.isEmpty()) {
+            for (DBObject dbo : fetch(where().fieldIn(IdentifiedTranslator.CANONICAL_URL, toFetch).build())) {
+                found.put(TranslatorUtils.toString(dbo, IdentifiedTranslator.CANONICAL_URL), dbo);
             }
         }
 
+        ResolvedContentBuilder results = ResolvedContent.builder();
+        for (String uri : requested) {
+            DBObject dbo = found.get(uri);
+            if (dbo != null) {
+                results.put(uri, translate(dbo));
+            }
+        }
         return results.build();
     }
 
     @Override
     public ResolvedContent findByIds(Iterable<Long> ids) {
-        ResolvedContentBuilder results = ResolvedContent.builder();
-
-        for (Long id : ids) {
-            DBObject found = contentGroups.findOne(where().fieldEquals(IdentifiedTranslator.ID, id).build());
-            if (found != null) {
-                ContentGroup contentGroup = contentGroupTranslator.fromDBObject(found, new ContentGroup());
-                results.put(id.toString(), contentGroup);
+        Set<Long> requested = ImmutableSet.copyOf(ids);
+        Map<Long, DBObject> found = Maps.newHashMapWithExpectedSize(requested.size());
+        Set<Long> toFetch = Sets.newHashSet();
+        for (Long id : requested) {
+            DBObject cached = cache != null ? cache.forId(id) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toFetch.add(id);
+            }
+        }
+        if (!toFetch.isEmpty()) {
+            for (DBObject dbo : fetch(where().fieldIn(IdentifiedTranslator.ID, toFetch).build())) {
+                found.put(TranslatorUtils.toLong(dbo, IdentifiedTranslator.ID), dbo);
             }
         }
 
+        ResolvedContentBuilder results = ResolvedContent.builder();
+        for (Long id : requested) {
+            DBObject dbo = found.get(id);
+            if (dbo != null) {
+                results.put(id.toString(), translate(dbo));
+            }
+        }
         return results.build();
     }
 
+    /**
+     * Streams all content groups from a fresh cursor on each iteration, without
+     * going through the cache.
+     */
     @Override
     public Iterable<ContentGroup> findAll() {
-        Set<ContentGroup> results = new HashSet<ContentGroup>();
+        return new Iterable<ContentGroup>() {
 
-        DBCursor cursor = contentGroups.find();
-        for (DBObject current : cursor) {
-            ContentGroup contentGroup = contentGroupTranslator.fromDBObject(current, new ContentGroup());
-            results.add(contentGroup);
+            @Override
+            public Iterator<ContentGroup> iterator() {
+                return Iterators.transform(contentGroups.find().iterator(),
+                        dbo -> contentGroupTranslator.fromDBObject(dbo, new ContentGroup()));
+            }
+        };
+    }
+
+    private Iterable<DBObject> fetch(DBObject query) {
+        if (cache == null) {
+            return contentGroups.find(query);
         }
+        long generation = cache.generation();
+        ImmutableList.Builder<DBObject> fetched = ImmutableList.builder();
+        for (DBObject dbo : contentGroups.find(query)) {
+            cache.put(generation, TranslatorUtils.toLong(dbo, IdentifiedTranslator.ID),
+                    TranslatorUtils.toString(dbo, IdentifiedTranslator.CANONICAL_URL), dbo);
+            fetched.add(dbo);
+        }
+        return fetched.build();
+    }
 
-        return results;
+    private ContentGroup translate(DBObject dbo) {
+        // translation strips the timestamp fields from the document it reads
+        DBObject toTranslate = cache != null ? new BasicDBObject(dbo.toMap()) : dbo;
+        return contentGroupTranslator.fromDBObject(toTranslate, new ContentGroup());
     }
 }
@@ -1,15 +1,22 @@
 package org.atlasapi.persistence.content.mongo;
 
+import javax.annotation.Nullable;
+
 import org.atlasapi.persistence.audit.PersistenceAuditLog;
 import org.atlasapi.persistence.content.ContentCategory;
 import org.atlasapi.persistence.media.entity.IdentifiedTranslator;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
 import com.metabroadcast.common.time.Clock;
+import com.metabroadcast.common.persistence.translator.TranslatorUtils;
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
 import org.atlasapi.media.entity.ContentGroup;
 import org.atlasapi.persistence.content.ContentGroupWriter;
 import org.atlasapi.persistence.ids.MongoSequentialIdGenerator;
 import org.atlasapi.persistence.media.entity.ContentGroupTranslator;
+import org.atlasapi.persistence.media.entity.DescribedTranslator;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
 
@@ -20,15 +27,22 @@ public class MongoContentGroupWriter implements ContentGroupWriter {
     private final MongoSequentialIdGenerator idGenerator;
     private final DBCollection contentGroups;
     private final PersistenceAuditLog persistenceAuditLog;
+    @Nullable private final ContentGroupCache cache;
 
     public MongoContentGroupWriter(DatabasedMongo mongo, 
             PersistenceAuditLog persistenceAuditLog, Clock clock) {
+        this(mongo, persistenceAuditLog, clock, null);
+    }
+
+    public MongoContentGroupWriter(DatabasedMongo mongo, 
+            PersistenceAuditLog persistenceAuditLog, Clock clock, @Nullable ContentGroupCache cache) {
         MongoContentTables contentTables = new MongoContentTables(mongo);
         this.clock = clock;
         this.contentGroups = contentTables.collectionFor(ContentCategory.CONTENT_GROUP);
         this.contentGroupTranslator = new ContentGroupTranslator();
         this.persistenceAuditLog = persistenceAuditLog;
         this.idGenerator = new MongoSequentialIdGenerator(mongo, ContentCategory.CONTENT_GROUP.tableName());
+        this.cache = cache;
     }
 
     @Override
@@ -37,22 +51,38 @@ public class MongoContentGroupWriter implements ContentGroupWriter {
 
         contentGroup.setLastFetched(clock.now());
 
-        if (!contentGroup.hashChanged(contentGroupTranslator.hashCodeOf(contentGroup))) {
+        DBObject dbo = contentGroupTranslator.toDBObject(null, contentGroup);
+        if (!contentGroup.hashChanged(contentGroupTranslator.hashCodeOf(dbo))) {
             persistenceAuditLog.logNoWrite(contentGroup);
             return;
-        } else {
-            ensureId(contentGroup);
-            contentGroup.setThisOrChildLastUpdated(clock.now());
-            persistenceAuditLog.logWrite(contentGroup);
-            contentGroups.save(contentGroupTranslator.toDBObject(null, contentGroup));
         }
-    }
-    
-    private void ensureId(ContentGroup contentGroup) {
-        boolean noId = contentGroup.getId() == null;
-        boolean noStoredId = contentGroup.getId() != null && contentGroups.count(where().fieldEquals(IdentifiedTranslator.ID, contentGroup.getId()).build()) == 0;
-        if (noId || noStoredId) {
+
+        contentGroup.setThisOrChildLastUpdated(clock.now());
+        TranslatorUtils.fromDateTime(dbo, DescribedTranslator.THIS_OR_CHILD_LAST_UPDATED_KEY,
+                contentGroup.getThisOrChildLastUpdated());
+        persistenceAuditLog.logWrite(contentGroup);
+        if (!replaceStored(contentGroup, dbo)) {
             contentGroup.setId(idGenerator.generateRaw());
+            contentGroups.insert(contentGroupTranslator.toDBObject(null, contentGroup), WriteConcern.SAFE);
+        }
+        if (cache != null) {
+            cache.invalidate(contentGroup);
+        }
+    }
+
+    /**
+     * Replaces the stored group with the same id, if there is one. A group whose
+     * id is not stored is given a fresh id by the caller rather than being
+     * written under the id it carries. The update is acknowledged, since an
+     * unacknowledged one reports no match and would cause a duplicate insert.
+     */
+    private boolean replaceStored(ContentGroup contentGroup, DBObject dbo) {
+        if (contentGroup.getId() == null) {
+            return false;
         }
+        WriteResult result = contentGroups.update(
+                where().fieldEquals(IdentifiedTranslator.ID, contentGroup.getId()).build(),
+                dbo, false, false, WriteConcern.SAFE);
+        return result.getN() > 0;
     }
 }
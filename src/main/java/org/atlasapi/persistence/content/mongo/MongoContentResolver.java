@@ -1,12 +1,21 @@
 package org.atlasapi.persistence.content.mongo;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.sort;
 import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -16,24 +25,34 @@ import org.atlasapi.media.entity.EntityType;
 import org.atlasapi.media.entity.Identified;
 import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.persistence.content.ContentCategory;
 import org.atlasapi.persistence.content.KnownTypeContentResolver;
 import org.atlasapi.persistence.content.ResolvedContent;
 import org.atlasapi.persistence.lookup.entry.LookupEntry;
 import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
 import org.atlasapi.persistence.media.entity.ContainerTranslator;
+import org.atlasapi.persistence.media.entity.ContentTranslator;
 import org.atlasapi.persistence.media.entity.DescribedTranslator;
+import org.atlasapi.persistence.media.entity.IdentifiedTranslator;
 import org.atlasapi.persistence.media.entity.ItemTranslator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.translator.TranslatorUtils;
+import com.metabroadcast.common.query.Selection;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -42,49 +61,136 @@ public class MongoContentResolver implements KnownTypeContentResolver {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
     
+    /**
+     * Per-collection lookups are fanned out over a small pool shared by all
+     * resolvers using the default constructor. It is bounded so a burst of
+     * resolutions degrades to running queries on the calling thread rather
+     * than queueing without limit.
+     */
+    private static final ExecutorService SHARED_EXECUTOR = sharedExecutor(16, 64);
+
+    private static ExecutorService sharedExecutor(int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("mongo-content-resolver-%d")
+                        .build(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private final ItemTranslator itemTranslator;
     private final ContainerTranslator containerTranslator;
     private final MongoContentTables contentTables;
     private final LookupEntryStore lookupEntryStore;
+    private final ExecutorService executor;
 
     public MongoContentResolver(DatabasedMongo mongo, LookupEntryStore lookupEntryStore) {
+        this(mongo, lookupEntryStore, SHARED_EXECUTOR);
+    }
+
+    public MongoContentResolver(DatabasedMongo mongo, LookupEntryStore lookupEntryStore,
+            ExecutorService executor) {
         this.contentTables = new MongoContentTables(mongo);
         SubstitutionTableNumberCodec idCodec = new SubstitutionTableNumberCodec();
         this.containerTranslator = new ContainerTranslator(idCodec);
         this.itemTranslator = new ItemTranslator(idCodec);
         this.lookupEntryStore = checkNotNull(lookupEntryStore);
+        this.executor = checkNotNull(executor);
     }
 
     public ResolvedContent findByLookupRefs(Iterable<LookupRef> lookupRefs) {
-        Builder<String, Identified> results = ImmutableMap.builder();
-        Set<String> foundUris = Sets.newHashSet();
         Multimap<DBCollection, String> idsGroupedByTable = HashMultimap.create();
+        Map<String, Long> idsForUris = Maps.newHashMap();
         for (LookupRef lookupRef : lookupRefs) {
             idsGroupedByTable.put(contentTables.collectionFor(lookupRef.category()), lookupRef.uri());
+            if (lookupRef.id() != null) {
+                idsForUris.put(lookupRef.uri(), lookupRef.id());
+            }
         }
         
+        // Each table is queried and translated independently, so with refs
+        // spanning several tables the slowest table bounds the total time.
+        // A single table is resolved on the calling thread to avoid the hop.
+        List<Future<List<Identified>>> pending = Lists.newArrayListWithCapacity(idsGroupedByTable.keySet().size());
+        List<Identified> resolved = Lists.newArrayList();
         for (Entry<DBCollection, Collection<String>> lookupInOneTable : idsGroupedByTable.asMap().entrySet()) {
-            
-            DBCursor found = lookupInOneTable.getKey().find(where().idIn(lookupInOneTable.getValue()).build());
-            if (found != null) {
-                for (DBObject dbo : found) {
-                    Identified model = toModel(dbo);
-                    if (!foundUris.contains(model.getCanonicalUri())) {
-                        results.put(model.getCanonicalUri(), model);
-                        foundUris.add(model.getCanonicalUri());
-                    }
-                }
+            Callable<List<Identified>> find = findInTable(lookupInOneTable.getKey(), lookupInOneTable.getValue());
+            if (idsGroupedByTable.keySet().size() == 1) {
+                resolved.addAll(call(find));
+            } else {
+                pending.add(executor.submit(find));
             }
         }
+        for (Future<List<Identified>> tableResults : pending) {
+            resolved.addAll(getUninterruptibly(tableResults));
+        }
         
-        ImmutableMap<String, Identified> res = results.build();
+        Map<String, Identified> results = Maps.newLinkedHashMap();
+        for (Identified model : resolved) {
+            if (!results.containsKey(model.getCanonicalUri())) {
+                results.put(model.getCanonicalUri(), model);
+            }
+        }
         
-        addIdsToResults(res);
-        return ResolvedContent.builder().putAll(res).build();
+        addIdsToResults(results, idsForUris);
+        return ResolvedContent.builder().putAll(results).build();
+    }
+
+    private Callable<List<Identified>> findInTable(final DBCollection table, final Collection<String> uris) {
+        return new Callable<List<Identified>>() {
+
+            @Override
+            public List<Identified> call() {
+                DBCursor found = table.find(where().idIn(uris).build());
+                if (found == null) {
+                    return ImmutableList.of();
+                }
+                // translate as the cursor streams batches back, rather than
+                // waiting for the whole result before starting.
+                ImmutableList.Builder<Identified> models = ImmutableList.builder();
+                for (DBObject dbo : found) {
+                    models.add(toModel(dbo));
+                }
+                return models.build();
+            }
+        };
+    }
+
+    private List<Identified> call(Callable<List<Identified>> find) {
+        try {
+            return find.call();
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
     }
 
-    private void addIdsToResults(ImmutableMap<String, Identified> uriToIdentified) {
-        Map<String, Long> idsForCanonicalUris = lookupEntryStore.idsForCanonicalUris(uriToIdentified.keySet());
+    private List<Identified> getUninterruptibly(Future<List<Identified>> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Ids come from the refs the caller passed in. Only refs which were
+     * missing an id fall back to a lookup read.
+     */
+    private void addIdsToResults(Map<String, Identified> uriToIdentified, Map<String, Long> knownIds) {
+        Set<String> missingIds = Sets.difference(uriToIdentified.keySet(), knownIds.keySet());
+        Map<String, Long> idsForCanonicalUris = knownIds;
+        if (!missingIds.isEmpty()) {
+            idsForCanonicalUris = ImmutableMap.<String, Long>builder()
+                    .putAll(knownIds)
+                    .putAll(lookupEntryStore.idsForCanonicalUris(ImmutableSet.copyOf(missingIds)))
+                    .build();
+        }
         
         for(Entry<String, Identified> result : uriToIdentified.entrySet()) {
             Long id = idsForCanonicalUris.get(result.getKey());
@@ -119,9 +225,50 @@ public class MongoContentResolver implements KnownTypeContentResolver {
         throw new IllegalArgumentException("Unknown type: " + type);
     }
 
+    /**
+     * Refs to content in the given category from the publisher whose title
+     * normalises to the same key as the given title. This is served by the
+     * {@link ContentTranslator#toNormalisedTitleIndex()} index and only reads
+     * the fields needed to build the refs.
+     *
+     * Content written before normalised titles were stored is only found once
+     * {@link NormalisedTitleBackfill} has been run.
+     */
+    public List<LookupRef> findByNormalisedTitle(Publisher publisher, String title,
+            ContentCategory category, Selection selection) {
+        String normalisedTitle = ContentTranslator.normaliseTitle(title);
+        if (normalisedTitle == null) {
+            return ImmutableList.of();
+        }
+        DBCursor cursor = contentTables.collectionFor(category)
+                .find(
+                        where()
+                            .fieldEquals(IdentifiedTranslator.PUBLISHER, publisher.key())
+                            .fieldEquals(ContentTranslator.NORMALISED_TITLE_KEY, normalisedTitle)
+                            .build(),
+                        new BasicDBObject(IdentifiedTranslator.ID, 1)
+                            .append(IdentifiedTranslator.OPAQUE_ID, 1)
+                )
+                .sort(sort().ascending(IdentifiedTranslator.OPAQUE_ID).build())
+                .skip(selection.getOffset());
+
+        ImmutableList.Builder<LookupRef> refs = ImmutableList.builder();
+        for (DBObject dbo : Iterables.limit(cursor, selection.getLimit())) {
+            refs.add(new LookupRef(
+                    TranslatorUtils.toString(dbo, IdentifiedTranslator.ID),
+                    TranslatorUtils.toLong(dbo, IdentifiedTranslator.OPAQUE_ID),
+                    publisher,
+                    category
+            ));
+        }
+        return refs.build();
+    }
+
     /**
      * DON'T USE THIS!!!
      * Very slow. Using temporarily in ExactTitleGenerator as a direct db query for short titles.
+     * Use {@link #findByNormalisedTitle(Publisher, String, ContentCategory, Selection)} instead,
+     * once {@link NormalisedTitleBackfill} has been run.
      */
     @Deprecated
     public ResolvedContent getExactTitleMatches(Content content) {
@@ -0,0 +1,68 @@
+package org.atlasapi.persistence.content.mongo;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.media.entity.ContentTranslator;
+import org.atlasapi.persistence.media.entity.DescribedTranslator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Adds the normalised title to stored content written before it was recorded.
+ * The normalised title is not part of the content hash, so unchanged content
+ * is never rewritten with it, and
+ * {@link MongoContentResolver#findByNormalisedTitle} misses such content until
+ * this has run.
+ *
+ * Only documents without a normalised title are touched, so it is safe to run
+ * alongside ingest and to run again.
+ */
+public class NormalisedTitleBackfill implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(NormalisedTitleBackfill.class);
+    private static final ContentCategory[] CATEGORIES = {
+            ContentCategory.CONTAINER,
+            ContentCategory.PROGRAMME_GROUP,
+            ContentCategory.TOP_LEVEL_ITEM,
+            ContentCategory.CHILD_ITEM
+    };
+
+    private final MongoContentTables contentTables;
+
+    public NormalisedTitleBackfill(DatabasedMongo mongo) {
+        this.contentTables = new MongoContentTables(checkNotNull(mongo));
+    }
+
+    @Override
+    public void run() {
+        for (ContentCategory category : CATEGORIES) {
+            backfill(contentTables.collectionFor(category));
+        }
+    }
+
+    private void backfill(DBCollection collection) {
+        DBObject missing = new BasicDBObject(DescribedTranslator.TITLE_KEY, new BasicDBObject("$exists", true))
+                .append(ContentTranslator.NORMALISED_TITLE_KEY, new BasicDBObject("$exists", false));
+        int updated = 0;
+        for (DBObject dbo : collection.find(missing, new BasicDBObject(DescribedTranslator.TITLE_KEY, 1))) {
+            String normalised = ContentTranslator.normaliseTitle((String) dbo.get(DescribedTranslator.TITLE_KEY));
+            if (normalised == null) {
+                continue;
+            }
+            collection.update(
+                    new BasicDBObject(MongoConstants.ID, dbo.get(MongoConstants.ID)),
+                    new BasicDBObject(MongoConstants.SET,
+                            new BasicDBObject(ContentTranslator.NORMALISED_TITLE_KEY, normalised))
+            );
+            updated++;
+        }
+        log.info("Backfilled normalised titles of {} {} documents", updated, collection.getName());
+    }
+}
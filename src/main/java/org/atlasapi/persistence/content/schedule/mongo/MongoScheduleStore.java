@@ -10,6 +10,9 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
 import org.atlasapi.application.v3.DefaultApplication;
 import org.atlasapi.equiv.OutputContentMerger;
 import org.atlasapi.media.channel.Channel;
@@ -25,6 +28,7 @@ import org.atlasapi.media.entity.Schedule;
 import org.atlasapi.media.entity.ScheduleEntry;
 import org.atlasapi.media.entity.ScheduleEntry.ItemRefAndBroadcast;
 import org.atlasapi.media.entity.Version;
+import org.atlasapi.messaging.v3.CoalescingScheduleUpdateMessageSender;
 import org.atlasapi.messaging.v3.ScheduleUpdateMessage;
 import org.atlasapi.output.Annotation;
 import org.atlasapi.persistence.content.ContentResolver;
@@ -42,6 +46,7 @@ import com.metabroadcast.common.base.MorePredicates;
 import com.metabroadcast.common.ids.NumberToShortStringCodec;
 import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
 import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.queue.MessagingException;
 import com.metabroadcast.common.time.SystemClock;
@@ -68,6 +73,7 @@ import com.google.common.collect.Ordering;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
@@ -92,6 +98,7 @@ public class MongoScheduleStore implements ScheduleResolver, ScheduleWriter {
     private final ContentWriter contentWriter;
 
     private final MessageSender<ScheduleUpdateMessage> messageSender;
+    private final boolean ownsMessageSender;
     private final Timestamper timestamper = new SystemClock();
     private final NumberToShortStringCodec idCodec = SubstitutionTableNumberCodec.lowerCaseOnly();
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -103,6 +110,54 @@ public class MongoScheduleStore implements ScheduleResolver, ScheduleWriter {
             ContentWriter contentWriter,
             EquivalentContentResolver equivalentContentResolver,
             MessageSender<ScheduleUpdateMessage> messageSender
+    ) {
+        this(
+                db,
+                channelResolver,
+                contentResolver,
+                contentWriter,
+                equivalentContentResolver,
+                messageSender,
+                false
+        );
+    }
+
+    /**
+     * Update messages for the same channel and source sent within
+     * {@code updateWindow} of each other are merged into one covering their
+     * intervals, delaying each by at most {@code maxUpdateDelay}. The store
+     * owns the merging sender, so {@link #close()} must be called to send any
+     * update still held.
+     */
+    public MongoScheduleStore(
+            DatabasedMongo db,
+            ChannelResolver channelResolver,
+            ContentResolver contentResolver,
+            ContentWriter contentWriter,
+            EquivalentContentResolver equivalentContentResolver,
+            MessageSender<ScheduleUpdateMessage> messageSender,
+            Duration updateWindow,
+            Duration maxUpdateDelay
+    ) {
+        this(
+                db,
+                channelResolver,
+                contentResolver,
+                contentWriter,
+                equivalentContentResolver,
+                new CoalescingScheduleUpdateMessageSender(messageSender, updateWindow, maxUpdateDelay),
+                true
+        );
+    }
+
+    private MongoScheduleStore(
+            DatabasedMongo db,
+            ChannelResolver channelResolver,
+            ContentResolver contentResolver,
+            ContentWriter contentWriter,
+            EquivalentContentResolver equivalentContentResolver,
+            MessageSender<ScheduleUpdateMessage> messageSender,
+            boolean ownsMessageSender
     ) {
         this.channelResolver = channelResolver;
         this.contentResolver = contentResolver;
@@ -115,8 +170,25 @@ public class MongoScheduleStore implements ScheduleResolver, ScheduleWriter {
         );
         translator = new ScheduleEntryTranslator(channelResolver);
         this.messageSender = messageSender;
+        this.ownsMessageSender = ownsMessageSender;
     }
-    
+
+    /**
+     * Sends any update messages still held by a merging sender this store
+     * created. A sender passed in by the caller is left for the caller to close.
+     */
+    @PreDestroy
+    public void close() {
+        if (!ownsMessageSender) {
+            return;
+        }
+        try {
+            messageSender.close();
+        } catch (Exception e) {
+            log.error("Failed to close schedule update sender", e);
+        }
+    }
+
     @Override
     public void writeCompleteEntry(ScheduleEntry entry) {
         collection.save(translator.toDb(entry));
@@ -156,11 +228,33 @@ public class MongoScheduleStore implements ScheduleResolver, ScheduleWriter {
         for(ItemRefAndBroadcast itemAndBroadcast : itemsAndBroadcasts) {
             scheduleEntryBuilder.toScheduleEntryFromBroadcast(channel, publisher, itemAndBroadcast, entries);
         }
+
+        Map<String, DBObject> stored = Maps.uniqueIndex(
+                where().idIn(entries.keySet()).find(collection),
+                dbo -> (String) dbo.get(MongoConstants.ID)
+        );
+        boolean changed = false;
         for (ScheduleEntry entry : entries.values()) {
-            writeCompleteEntry(entry);
+            DBObject dbo = translator.toDb(entry);
+            if (!unchanged(dbo, stored.get(entry.toKey()))) {
+                collection.save(dbo);
+                changed = true;
+            }
         }
-        
-        sendUpdateMessage(publisher, channel, interval);
+
+        if (changed) {
+            sendUpdateMessage(publisher, channel, interval);
+        } else {
+            log.debug("Schedule block unchanged: {} {} {}", publisher, channel.getId(), interval);
+        }
+    }
+
+    // compares through the translator so that both sides are in the same form
+    private boolean unchanged(DBObject dbo, @Nullable DBObject stored) {
+        if (stored == null) {
+            return false;
+        }
+        return dbo.toString().equals(translator.toDb(translator.fromDb(stored)).toString());
     }
     
     private void sendUpdateMessage(Publisher publisher, Channel channel, Interval interval) {
@@ -199,15 +293,32 @@ public class MongoScheduleStore implements ScheduleResolver, ScheduleWriter {
 			}
 		});
 	
+		// broadcasts on the expected channel's own URI need no resolution
+		Set<String> otherUris = Sets.newHashSet();
+		for (Broadcast b : broadcasts) {
+			if (!expectedChannel.getUri().equals(b.getBroadcastOn())) {
+				otherUris.add(b.getBroadcastOn());
+			}
+		}
+		Map<String, Channel> otherChannels = otherUris.isEmpty()
+		                                     ? ImmutableMap.<String, Channel>of()
+		                                     : channelResolver.forUris(otherUris);
+		
 		DateTime currentEndTime = null;
 		
 		Broadcast previousBroadcast = null;
 		for(Broadcast b : broadcasts) {
 			
-			if(!expectedChannel.equals(channelResolver.fromUri(b.getBroadcastOn()).requireValue())) {
-				throw new IllegalArgumentException("All broadcasts must be on the same channel; "
-				                + scheduleDebugInfo(previousBroadcast, b));
-			}	
+			if(!expectedChannel.getUri().equals(b.getBroadcastOn())) {
+				Channel channel = otherChannels.get(b.getBroadcastOn());
+				if (channel == null) {
+					throw new IllegalStateException("No channel found for " + b.getBroadcastOn());
+				}
+				if (!expectedChannel.equals(channel)) {
+					throw new IllegalArgumentException("All broadcasts must be on the same channel; "
+					                + scheduleDebugInfo(previousBroadcast, b));
+				}
+			}
 			
 			if(allowGaps) {
 				if(currentEndTime != null && b.getTransmissionTime().isBefore(currentEndTime)) {
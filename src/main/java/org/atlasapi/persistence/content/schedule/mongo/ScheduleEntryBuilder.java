@@ -1,8 +1,10 @@
 package org.atlasapi.persistence.content.schedule.mongo;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.atlasapi.media.channel.Channel;
 import org.atlasapi.media.channel.ChannelResolver;
@@ -13,7 +15,6 @@ import org.atlasapi.media.entity.ScheduleEntry;
 import org.atlasapi.media.entity.ScheduleEntry.ItemRefAndBroadcast;
 import org.atlasapi.media.entity.Version;
 
-import com.metabroadcast.common.base.Maybe;
 import com.metabroadcast.common.time.DateTimeZones;
 
 import com.google.common.collect.ImmutableList;
@@ -47,6 +48,7 @@ public class ScheduleEntryBuilder {
     
     public Map<String, ScheduleEntry> toScheduleEntries(Iterable<? extends Item> items) {
     	Map<String, ScheduleEntry> entries = new HashMap<String, ScheduleEntry>();
+    	Map<String, Channel> channels = channelResolver.forUris(broadcastOnUris(items));
     	
         for (Item item : items) {
             for (Version version : item.nativeVersions()) {
@@ -54,9 +56,9 @@ public class ScheduleEntryBuilder {
                     ItemRefAndBroadcast itemAndBroadcast = new ItemRefAndBroadcast(item, broadcast);
                     Publisher publisher = item.getPublisher();
                     
-                    Maybe<Channel> channel = channelResolver.fromUri(broadcast.getBroadcastOn());
-                    if (channel.hasValue()) {
-                        toScheduleEntryFromBroadcast(channel.requireValue(), publisher, itemAndBroadcast, entries);
+                    Channel channel = channels.get(broadcast.getBroadcastOn());
+                    if (channel != null) {
+                        toScheduleEntryFromBroadcast(channel, publisher, itemAndBroadcast, entries);
                     } else {
                         log.warn("No channel for " + broadcast.getTransmissionTime().toString() + " of " + item.getCanonicalUri());
                     }
@@ -67,6 +69,20 @@ public class ScheduleEntryBuilder {
         return entries;
     }
 
+    private Set<String> broadcastOnUris(Iterable<? extends Item> items) {
+        Set<String> uris = new HashSet<String>();
+        for (Item item : items) {
+            for (Version version : item.nativeVersions()) {
+                for (Broadcast broadcast : version.getBroadcasts()) {
+                    if (broadcast.getBroadcastOn() != null) {
+                        uris.add(broadcast.getBroadcastOn());
+                    }
+                }
+            }
+        }
+        return uris;
+    }
+
 	public void toScheduleEntryFromBroadcast(Channel channel, Publisher publisher, ItemRefAndBroadcast itemAndBroadcast, Map<String, ScheduleEntry> entries) {
 	    
 		Broadcast broadcast = itemAndBroadcast.getBroadcast();
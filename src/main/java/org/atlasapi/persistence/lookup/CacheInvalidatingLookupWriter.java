@@ -0,0 +1,38 @@
+package org.atlasapi.persistence.lookup;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+import org.atlasapi.equiv.ContentRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.content.CachingEquivalentContentResolver;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Iterables;
+
+/**
+ * Drops cached equivalent content for every lookup entry changed by a write, so
+ * that equivalence changes made in this JVM are visible immediately.
+ */
+public class CacheInvalidatingLookupWriter implements LookupWriter {
+
+    private final LookupWriter delegate;
+    private final CachingEquivalentContentResolver cache;
+
+    public CacheInvalidatingLookupWriter(LookupWriter delegate, CachingEquivalentContentResolver cache) {
+        this.delegate = checkNotNull(delegate);
+        this.cache = checkNotNull(cache);
+    }
+
+    @Override
+    public Optional<Set<LookupEntry>> writeLookup(ContentRef subject,
+            Iterable<ContentRef> equivalents, Set<Publisher> publishers) {
+        Optional<Set<LookupEntry>> written = delegate.writeLookup(subject, equivalents, publishers);
+        if (written.isPresent()) {
+            cache.invalidate(Iterables.transform(written.get(), LookupEntry::uri));
+        }
+        return written;
+    }
+}
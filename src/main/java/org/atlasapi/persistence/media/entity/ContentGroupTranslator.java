@@ -5,6 +5,7 @@ import org.atlasapi.media.entity.EntityType;
 import org.atlasapi.persistence.ModelTranslator;
 
 import com.metabroadcast.common.persistence.translator.TranslatorUtils;
+import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 
 public class ContentGroupTranslator implements ModelTranslator<ContentGroup> {
@@ -48,6 +49,14 @@ public class ContentGroupTranslator implements ModelTranslator<ContentGroup> {
         return generateHashByRemovingFieldsFromTheDbo(toDBObject(null, contentGroup));
     }
 
+    /**
+     * The hash of an already translated content group, leaving the given
+     * document untouched so it can still be written.
+     */
+    public String hashCodeOf(DBObject contentGroupDbo) {
+        return generateHashByRemovingFieldsFromTheDbo(new BasicDBObject(contentGroupDbo.toMap()));
+    }
+
     private String generateHashByRemovingFieldsFromTheDbo(DBObject dbObject) {
         dbObject.removeField(DescribedTranslator.LAST_FETCHED_KEY);
         dbObject.removeField(DescribedTranslator.THIS_OR_CHILD_LAST_UPDATED_KEY);
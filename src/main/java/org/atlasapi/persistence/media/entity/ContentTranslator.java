@@ -1,7 +1,10 @@
 package org.atlasapi.persistence.media.entity;
 
+import java.text.Normalizer;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
@@ -49,8 +52,12 @@ public class ContentTranslator implements ModelTranslator<Content> {
     public static final String EDITORIAL_PRIORITY_KEY = "editorialPriority";
     public static final String VERSIONS_KEY = "versions";
     public static final String AWARDS = "awards";
+    public static final String NORMALISED_TITLE_KEY = "normalisedTitle";
     private static final String COUNTRIES_OF_ORIGIN_KEY = "countries";
 
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final ClipTranslator clipTranslator;
     private final KeyPhraseTranslator keyPhraseTranslator;
     private final DescribedTranslator describedTranslator;
@@ -225,6 +232,7 @@ public class ContentTranslator implements ModelTranslator<Content> {
         TranslatorUtils.from(dbObject, YEAR_KEY, entity.getYear());
         TranslatorUtils.from(dbObject, GENERIC_DESCRIPTION_KEY, entity.getGenericDescription());
         TranslatorUtils.from(dbObject, EDITORIAL_PRIORITY_KEY, entity.getEditorialPriority());
+        TranslatorUtils.from(dbObject, NORMALISED_TITLE_KEY, normaliseTitle(entity.getTitle()));
 
         if (! entity.getCountriesOfOrigin().isEmpty()) {
             TranslatorUtils.fromIterable(dbObject, Countries.toCodes(entity.getCountriesOfOrigin()), COUNTRIES_OF_ORIGIN_KEY);
@@ -254,6 +262,32 @@ public class ContentTranslator implements ModelTranslator<Content> {
     }
 
 
+    /**
+     * Case-folds the title, strips punctuation and symbols and collapses
+     * whitespace, so titles differing only in presentation share a key.
+     * Returns null for titles with nothing left to match on.
+     */
+    @Nullable
+    public static String normaliseTitle(@Nullable String title) {
+        if (title == null) {
+            return null;
+        }
+        String normalised = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalised = PUNCTUATION.matcher(normalised).replaceAll("");
+        normalised = WHITESPACE.matcher(normalised).replaceAll(" ").trim();
+        return normalised.isEmpty() ? null : normalised;
+    }
+
+    /**
+     * Index supporting title lookups by publisher. The trailing id gives a
+     * stable order for paging through matches.
+     */
+    public static DBObject toNormalisedTitleIndex() {
+        return new BasicDBObject(IdentifiedTranslator.PUBLISHER, 1)
+                .append(NORMALISED_TITLE_KEY, 1)
+                .append(IdentifiedTranslator.OPAQUE_ID, 1);
+    }
+
     protected void encodeLanguages(DBObject dbObject, Content entity) {
         if (!entity.getLanguages().isEmpty()) {
             TranslatorUtils.fromSet(dbObject, entity.getLanguages(), LANGUAGES_KEY);
@@ -326,6 +360,8 @@ public class ContentTranslator implements ModelTranslator<Content> {
     @SuppressWarnings("unchecked")
     public void removeFieldsForHash(DBObject dbObject) {
         describedTranslator.removeFieldsForHash(dbObject);
+        // derived from the title, so it cannot change unless the title does
+        dbObject.removeField(NORMALISED_TITLE_KEY);
         Iterable<DBObject> clips = (Iterable<DBObject>) dbObject.get(ContentTranslator.CLIPS_KEY);
         if (clips != null) {
             Set<DBObject> unorderedClips = Sets.newHashSet();
@@ -3,6 +3,9 @@ package org.atlasapi.persistence.media.entity;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
+import org.atlasapi.media.entity.Broadcast;
 import org.atlasapi.media.entity.EntityType;
 import org.atlasapi.media.entity.Episode;
 import org.atlasapi.media.entity.Film;
@@ -15,6 +18,7 @@ import org.atlasapi.media.entity.Subtitles;
 import org.atlasapi.media.entity.Version;
 import org.atlasapi.persistence.ModelTranslator;
 import org.atlasapi.persistence.content.mongo.DbObjectHashCodeDebugger;
+import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.LocalDate;
 import org.slf4j.Logger;
@@ -38,6 +42,11 @@ public class ItemTranslator implements ModelTranslator<Item> {
     private static final Logger log = LoggerFactory.getLogger(ItemTranslator.class);
     
     public static final String CONTAINER = "container";
+    /**
+     * The latest transmission end of any of the item's broadcasts, so that items
+     * with upcoming broadcasts can be found with a single indexed comparison.
+     */
+    public static final String LAST_BROADCAST_END = "lastBroadcastEnd";
     public static final String SERIES = "series";
     public static final String SERIES_ID = "seriesId";
     public static final String CONTAINER_ID = "containerId";
@@ -167,7 +176,22 @@ public class ItemTranslator implements ModelTranslator<Item> {
     @SuppressWarnings("unchecked")
     public void removeFieldsForHash(DBObject dbObject) {
         contentTranslator.removeFieldsForHash(dbObject);
+        // derived from the broadcasts, which are already hashed
+        dbObject.removeField(LAST_BROADCAST_END);
+    }
 
+    @Nullable
+    private DateTime lastBroadcastEnd(Item item) {
+        DateTime lastEnd = null;
+        for (Version version : item.getVersions()) {
+            for (Broadcast broadcast : version.getBroadcasts()) {
+                DateTime end = broadcast.getTransmissionEndTime();
+                if (end != null && (lastEnd == null || end.isAfter(lastEnd))) {
+                    lastEnd = end;
+                }
+            }
+        }
+        return lastEnd;
     }
 
 
@@ -187,6 +211,7 @@ public class ItemTranslator implements ModelTranslator<Item> {
         itemDbo.put(IS_LONG_FORM_KEY, entity.getIsLongForm());
 
         TranslatorUtils.from(itemDbo, BLACK_AND_WHITE_KEY, entity.getBlackAndWhite());
+        TranslatorUtils.fromDateTime(itemDbo, LAST_BROADCAST_END, lastBroadcastEnd(entity));
 		
         if(entity.getContainer() != null) {
             itemDbo.put(CONTAINER, entity.getContainer().getUri());
@@ -0,0 +1,72 @@
+package org.atlasapi.persistence.output;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.media.entity.ItemTranslator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.time.Clock;
+import com.metabroadcast.common.time.SystemClock;
+import com.mongodb.DBObject;
+
+/**
+ * Records the availability windows of every stored item in the
+ * {@link MongoAvailabilityWindowStore}, then marks the store populated so that
+ * {@link MongoAvailableItemsResolver} starts reading from it.
+ *
+ * It is safe to run while items are being written, since writing an item's
+ * windows replaces whatever was recorded for it, and to run again.
+ */
+public class AvailabilityWindowBackfill implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityWindowBackfill.class);
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    private final DatabasedMongo db;
+    private final MongoAvailabilityWindowStore windowStore;
+    private final Clock clock;
+    private final ItemTranslator itemTranslator = new ItemTranslator(new SubstitutionTableNumberCodec());
+
+    public AvailabilityWindowBackfill(DatabasedMongo db, MongoAvailabilityWindowStore windowStore) {
+        this(db, windowStore, new SystemClock());
+    }
+
+    public AvailabilityWindowBackfill(DatabasedMongo db, MongoAvailabilityWindowStore windowStore,
+            Clock clock) {
+        this.db = checkNotNull(db);
+        this.windowStore = checkNotNull(windowStore);
+        this.clock = checkNotNull(clock);
+    }
+
+    @Override
+    public void run() {
+        int failed = 0;
+        for (ContentCategory category : new ContentCategory[] {
+                ContentCategory.CHILD_ITEM, ContentCategory.TOP_LEVEL_ITEM }) {
+            int written = 0;
+            for (DBObject dbo : db.collection(category.tableName()).find()) {
+                try {
+                    Item item = itemTranslator.fromDBObject(dbo, null);
+                    windowStore.write(item);
+                } catch (RuntimeException e) {
+                    failed++;
+                    log.error("Failed to backfill availability windows of {}", dbo.get("_id"), e);
+                }
+                if (++written % PROGRESS_INTERVAL == 0) {
+                    log.info("Backfilled availability windows of {} {}", written, category.tableName());
+                }
+            }
+            log.info("Backfilled availability windows of {} {}", written, category.tableName());
+        }
+        if (failed > 0) {
+            log.error("Availability window backfill had {} failures, store not marked populated", failed);
+            return;
+        }
+        windowStore.markPopulated(clock.now());
+    }
+}
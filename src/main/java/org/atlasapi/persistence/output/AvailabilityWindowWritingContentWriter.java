@@ -0,0 +1,48 @@
+package org.atlasapi.persistence.output;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.persistence.content.ContentWriter;
+import org.atlasapi.persistence.media.entity.ItemTranslator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+
+/**
+ * Keeps the {@link MongoAvailabilityWindowStore} in step with items written
+ * through the delegate writer. Items whose hash is unchanged keep their
+ * recorded windows, since the hash covers their locations and container.
+ */
+public class AvailabilityWindowWritingContentWriter implements ContentWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityWindowWritingContentWriter.class);
+
+    private final ContentWriter delegate;
+    private final MongoAvailabilityWindowStore windowStore;
+    private final ItemTranslator itemTranslator = new ItemTranslator(new SubstitutionTableNumberCodec());
+
+    public AvailabilityWindowWritingContentWriter(ContentWriter delegate,
+            MongoAvailabilityWindowStore windowStore) {
+        this.delegate = checkNotNull(delegate);
+        this.windowStore = checkNotNull(windowStore);
+    }
+
+    @Override
+    public Item createOrUpdate(Item item) {
+        Item written = delegate.createOrUpdate(item);
+        if (!item.hashChanged(itemTranslator.hashCodeOf(item))) {
+            log.debug("{} not changed", item.getCanonicalUri());
+            return written;
+        }
+        windowStore.write(written);
+        return written;
+    }
+
+    @Override
+    public void createOrUpdate(Container container) {
+        delegate.createOrUpdate(container);
+    }
+}
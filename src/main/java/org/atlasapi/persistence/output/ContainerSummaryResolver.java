@@ -1,10 +1,13 @@
 package org.atlasapi.persistence.output;
 
+import java.util.Map;
+
 import org.atlasapi.media.entity.ParentRef;
 import org.atlasapi.media.entity.simple.BrandSummary;
 import org.atlasapi.media.entity.simple.SeriesSummary;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
 
 public interface ContainerSummaryResolver {
 
@@ -12,4 +15,34 @@ public interface ContainerSummaryResolver {
 
     Optional<SeriesSummary> summarizeSeries(ParentRef series);
 
+    /**
+     * Summaries of the given brands, keyed by URI. Containers that cannot be
+     * found have no entry.
+     */
+    default Map<String, BrandSummary> summarizeTopLevelContainers(Iterable<ParentRef> containers) {
+        Map<String, BrandSummary> summaries = Maps.newLinkedHashMap();
+        for (ParentRef container : containers) {
+            Optional<BrandSummary> summary = summarizeTopLevelContainer(container);
+            if (summary.isPresent()) {
+                summaries.put(container.getUri(), summary.get());
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Summaries of the given series, keyed by URI. Series that cannot be found
+     * have no entry.
+     */
+    default Map<String, SeriesSummary> summarizeSeries(Iterable<ParentRef> series) {
+        Map<String, SeriesSummary> summaries = Maps.newLinkedHashMap();
+        for (ParentRef ref : series) {
+            Optional<SeriesSummary> summary = summarizeSeries(ref);
+            if (summary.isPresent()) {
+                summaries.put(ref.getUri(), summary.get());
+            }
+        }
+        return summaries;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package org.atlasapi.persistence.output;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.sort;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.atlasapi.media.entity.ChildRef;
+import org.atlasapi.media.entity.Encoding;
+import org.atlasapi.media.entity.EntityType;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Location;
+import org.atlasapi.media.entity.Policy;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.media.entity.Version;
+import org.joda.time.DateTime;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.metabroadcast.common.persistence.translator.TranslatorUtils;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * A compact, denormalised record of the availability windows of items, one
+ * document per distinct policy window, so that available-items queries are
+ * index range scans rather than walks over full item documents.
+ *
+ * Open-ended windows are stored with sentinel start and end dates so that every
+ * document can be matched by the same range query. Each document also carries
+ * the earliest availability start of its item, which orders results as
+ * {@link MongoAvailableItemsResolver} does.
+ *
+ * The collection is maintained by {@link AvailabilityWindowWritingContentWriter}
+ * and needs the indexes from {@link #toIndexes()}. Items written before the
+ * writer was in place are backfilled by {@link AvailabilityWindowBackfill},
+ * which marks the store populated when it completes. Until then
+ * {@link #isPopulated()} is false and readers should not rely on the store.
+ */
+public class MongoAvailabilityWindowStore {
+
+    public static final String COLLECTION = "availabilityWindows";
+    public static final String STATUS_COLLECTION = "availabilityWindowsStatus";
+
+    private static final String BACKFILL_STATUS_ID = "backfill";
+    private static final String COMPLETED = "completed";
+    private static final long UNPOPULATED_RECHECK_MILLIS = 60000;
+
+    static final String ITEM = "item";
+    static final String CONTAINER = "container";
+    static final String PUBLISHER = "publisher";
+    static final String AID = "aid";
+    static final String TYPE = "type";
+    static final String LAST_UPDATED = "lastUpdated";
+    static final String PLATFORM = "platform";
+    static final String START = "start";
+    static final String END = "end";
+    static final String ITEM_EARLIEST_START = "itemStart";
+
+    static final DateTime UNBOUNDED_START = new DateTime(1, 1, 1, 0, 0, DateTimeZones.UTC);
+    static final DateTime UNBOUNDED_END = new DateTime(9999, 12, 31, 0, 0, DateTimeZones.UTC);
+
+    private final DBCollection windows;
+    private final DBCollection status;
+    private volatile boolean populated = false;
+    private volatile long populatedCheckedAt = 0;
+
+    public MongoAvailabilityWindowStore(DatabasedMongo db) {
+        this.windows = db.collection(COLLECTION);
+        this.status = db.collection(STATUS_COLLECTION);
+    }
+
+    /**
+     * The sort key follows the uri so that results for each uri come off the
+     * index in order and are merged, rather than sorted in memory.
+     */
+    public static List<DBObject> toIndexes() {
+        return ImmutableList.<DBObject>of(
+                new BasicDBObject(CONTAINER, 1).append(ITEM_EARLIEST_START, 1)
+                        .append(END, 1).append(START, 1),
+                new BasicDBObject(ITEM, 1).append(ITEM_EARLIEST_START, 1)
+                        .append(END, 1).append(START, 1)
+        );
+    }
+
+    /**
+     * Replaces the recorded windows of the item with those of its current
+     * locations. Each window has an id derived from the item and the window, so
+     * the current windows are upserted before stale ones are removed, and readers
+     * never see the item without the windows it still has.
+     */
+    public void write(Item item) {
+        checkNotNull(item.getCanonicalUri());
+        List<DBObject> dbos = windowsFor(item);
+        Set<Object> ids = new HashSet<>();
+        for (DBObject dbo : dbos) {
+            windows.save(dbo);
+            ids.add(dbo.get(MongoConstants.ID));
+        }
+        windows.remove(new BasicDBObject(ITEM, item.getCanonicalUri())
+                .append(MongoConstants.ID, new BasicDBObject("$nin", ids)));
+    }
+
+    /**
+     * Whether every item written before the store was in place has been
+     * backfilled. Once true this is not checked again; until then it is
+     * rechecked at most once a minute.
+     */
+    public boolean isPopulated() {
+        if (populated) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - populatedCheckedAt < UNPOPULATED_RECHECK_MILLIS) {
+            return false;
+        }
+        populatedCheckedAt = now;
+        populated = status.findOne(new BasicDBObject(MongoConstants.ID, BACKFILL_STATUS_ID)) != null;
+        return populated;
+    }
+
+    void markPopulated(DateTime completed) {
+        status.save(new BasicDBObject(MongoConstants.ID, BACKFILL_STATUS_ID)
+                .append(COMPLETED, completed.toDate()));
+        populated = true;
+    }
+
+    /**
+     * Items of any of the given containers that are available at the given time,
+     * ordered by the earliest availability start of each item.
+     */
+    public Multimap<Publisher, ChildRef> availableInContainers(Iterable<String> containerUris, DateTime at) {
+        return available(CONTAINER, containerUris, at);
+    }
+
+    /**
+     * The given items that are available at the given time, ordered by the
+     * earliest availability start of each item.
+     */
+    public Multimap<Publisher, ChildRef> availableItems(Iterable<String> itemUris, DateTime at) {
+        return available(ITEM, itemUris, at);
+    }
+
+    private Multimap<Publisher, ChildRef> available(String key, Iterable<String> uris, DateTime at) {
+        ImmutableListMultimap.Builder<Publisher, ChildRef> available = ImmutableListMultimap.builder();
+        if (Iterables.isEmpty(uris)) {
+            return available.build();
+        }
+        DBObject query = where()
+                .fieldIn(key, ImmutableSet.copyOf(uris))
+                .fieldAfter(END, at)
+                .fieldBefore(START, at)
+                .build();
+        for (DBObject dbo : windows.find(query).sort(sort().ascending(ITEM_EARLIEST_START).build())) {
+            Publisher publisher = Publisher.fromKey(TranslatorUtils.toString(dbo, PUBLISHER)).requireValue();
+            available.put(publisher, new ChildRef(
+                    TranslatorUtils.toLong(dbo, AID),
+                    TranslatorUtils.toString(dbo, ITEM),
+                    "",
+                    TranslatorUtils.toDateTime(dbo, LAST_UPDATED),
+                    EntityType.from(TranslatorUtils.toString(dbo, TYPE))
+            ));
+        }
+        return available.build();
+    }
+
+    private List<DBObject> windowsFor(Item item) {
+        Set<Policy> policies = ImmutableSet.copyOf(policies(item));
+        if (policies.isEmpty()) {
+            return ImmutableList.of();
+        }
+        DateTime itemStart = Ordering.natural().min(Iterables.transform(policies, this::startOf));
+
+        ImmutableList.Builder<DBObject> dbos = ImmutableList.builder();
+        Set<DBObject> seen = new HashSet<>();
+        for (Policy policy : policies) {
+            DBObject dbo = new BasicDBObject();
+            TranslatorUtils.from(dbo, ITEM, item.getCanonicalUri());
+            if (item.getContainer() != null) {
+                TranslatorUtils.from(dbo, CONTAINER, item.getContainer().getUri());
+            }
+            TranslatorUtils.from(dbo, PUBLISHER, item.getPublisher().key());
+            TranslatorUtils.from(dbo, AID, item.getId());
+            TranslatorUtils.from(dbo, TYPE, EntityType.from(item).toString());
+            TranslatorUtils.fromDateTime(dbo, LAST_UPDATED, item.getLastUpdated());
+            if (policy.getPlatform() != null) {
+                TranslatorUtils.from(dbo, PLATFORM, policy.getPlatform().key());
+            }
+            TranslatorUtils.fromDateTime(dbo, START, startOf(policy));
+            TranslatorUtils.fromDateTime(dbo, END, endOf(policy));
+            TranslatorUtils.fromDateTime(dbo, ITEM_EARLIEST_START, itemStart);
+            if (seen.add(dbo)) {
+                dbo.put(MongoConstants.ID, idFor(item, policy));
+                dbos.add(dbo);
+            }
+        }
+        return dbos.build();
+    }
+
+    private String idFor(Item item, Policy policy) {
+        return String.format("%s|%s|%d|%d",
+                item.getCanonicalUri(),
+                policy.getPlatform() != null ? policy.getPlatform().key() : "",
+                startOf(policy).getMillis(),
+                endOf(policy).getMillis());
+    }
+
+    private Iterable<Policy> policies(Item item) {
+        ImmutableList.Builder<Policy> policies = ImmutableList.builder();
+        for (Version version : item.getVersions()) {
+            for (Encoding encoding : version.getManifestedAs()) {
+                for (Location location : encoding.getAvailableAt()) {
+                    if (location.getPolicy() != null) {
+                        policies.add(location.getPolicy());
+                    }
+                }
+            }
+        }
+        return policies.build();
+    }
+
+    private DateTime startOf(Policy policy) {
+        return policy.getAvailabilityStart() != null ? policy.getAvailabilityStart() : UNBOUNDED_START;
+    }
+
+    private DateTime endOf(Policy policy) {
+        return policy.getAvailabilityEnd() != null ? policy.getAvailabilityEnd() : UNBOUNDED_END;
+    }
+}
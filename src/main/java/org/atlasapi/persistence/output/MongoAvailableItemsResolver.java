@@ -11,6 +11,8 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import com.metabroadcast.applications.client.model.internal.Application;
 import org.atlasapi.media.entity.ChildRef;
 import org.atlasapi.media.entity.Container;
@@ -120,18 +122,28 @@ public class MongoAvailableItemsResolver implements AvailableItemsResolver {
     private final DBCollection children;
     private final DBCollection topLevelItems;
     private final Clock clock;
-
-
+    @Nullable private final MongoAvailabilityWindowStore windowStore;
     
     public MongoAvailableItemsResolver(DatabasedMongo db, LookupEntryStore entryStore) {
         this(db, entryStore, new SystemClock());
     }
     
     public MongoAvailableItemsResolver(DatabasedMongo db, LookupEntryStore entryStore, Clock clock) {
+        this(db, entryStore, clock, null);
+    }
+
+    /**
+     * When a window store is given, availability is read from its denormalised
+     * windows rather than from the item documents themselves, once the store
+     * has been backfilled. Until then the item documents are queried as before.
+     */
+    public MongoAvailableItemsResolver(DatabasedMongo db, LookupEntryStore entryStore, Clock clock,
+            @Nullable MongoAvailabilityWindowStore windowStore) {
         this.children = db.collection(ContentCategory.CHILD_ITEM.tableName());
         this.topLevelItems = db.collection(ContentCategory.TOP_LEVEL_ITEM.tableName());
         this.entryStore = checkNotNull(entryStore);
         this.clock = clock;
+        this.windowStore = windowStore;
     }
     
     @Override
@@ -142,6 +154,11 @@ public class MongoAvailableItemsResolver implements AvailableItemsResolver {
     @Override
     public Multimap<Publisher, ChildRef> availableItemsByPublisherFor(Item item, Application application) {
         final DateTime now = clock.now();
+        if (windowStore != null && windowStore.isPopulated()) {
+            return windowStore.availableItems(FluentIterable.from(item.getEquivalentTo())
+                    .filter(sourceFilter(application.getConfiguration().getEnabledReadSources()))
+                    .transform(LookupRef.TO_URI), now);
+        }
         DBObject query = where()
                 .idIn(FluentIterable.from(item.getEquivalentTo())
                                     .filter(sourceFilter(application.getConfiguration().getEnabledReadSources()))
@@ -157,6 +174,9 @@ public class MongoAvailableItemsResolver implements AvailableItemsResolver {
     @Override
     public Multimap<Publisher, ChildRef> availableItemsByPublisherFor(Container container, Application application) {
         final DateTime now = clock.now();
+        if (windowStore != null && windowStore.isPopulated()) {
+            return windowStore.availableInContainers(containerAndEquivalents(container, application), now);
+        }
         return filterItems(now, sortByAvailabilityStart(availablityWindowsForItemsOf(container, application, now)));
     }
     
@@ -174,6 +194,11 @@ public class MongoAvailableItemsResolver implements AvailableItemsResolver {
      */
     public Iterable<ChildRef> availableItemsFor(Person person, Application application) {
         final DateTime now = clock.now();
+        if (windowStore != null && windowStore.isPopulated()) {
+            return switchEquivs(windowStore.availableItems(
+                    Iterables.transform(person.getContents(), ChildRef.TO_URI), now).values(),
+                    person.getPublisher());
+        }
         return switchEquivs(filterItems(now, sortByAvailabilityStart(availablityWindowsForItemsOf(person, now))).values(), person.getPublisher());
     }
 
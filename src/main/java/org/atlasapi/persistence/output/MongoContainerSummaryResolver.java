@@ -1,17 +1,36 @@
 package org.atlasapi.persistence.output;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
 import static com.metabroadcast.common.persistence.mongo.MongoConstants.ID;
 import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.CURIE;
 import static org.atlasapi.persistence.media.entity.IdentifiedTranslator.OPAQUE_ID;
 
 import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
+
+import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Identified;
+import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.ParentRef;
 import org.atlasapi.media.entity.simple.BrandSummary;
 import org.atlasapi.media.entity.simple.SeriesSummary;
 import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.content.ContentListener;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.metabroadcast.common.ids.NumberToShortStringCodec;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
 import com.metabroadcast.common.persistence.mongo.MongoBuilders;
@@ -19,7 +38,17 @@ import com.metabroadcast.common.persistence.translator.TranslatorUtils;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 
-public class MongoContainerSummaryResolver implements ContainerSummaryResolver {
+/**
+ * Summarises brands and series from a projection of their documents.
+ * 
+ * Optionally keeps the projections in a bounded local cache. Containers that
+ * are not found are not cached, so one created on another node is seen as soon
+ * as it is referenced. Entries are dropped when container writes in this JVM are reported
+ * through {@link ContentListener}; writes made elsewhere are only seen once the
+ * entry expires. Summaries are built afresh for each call, so callers are free
+ * to modify them.
+ */
+public class MongoContainerSummaryResolver implements ContainerSummaryResolver, ContentListener {
 
     private final String title = "title";
     private final String description = "description";
@@ -31,21 +60,122 @@ public class MongoContainerSummaryResolver implements ContainerSummaryResolver {
     private final DBCollection containers;
     private final DBCollection programmeGroups;
     private final NumberToShortStringCodec idCodec;
+    @Nullable private final Cache<String, DBObject> containerCache;
+    @Nullable private final Cache<String, DBObject> seriesCache;
+    private final AtomicLong invalidations = new AtomicLong();
 
     public MongoContainerSummaryResolver(DatabasedMongo mongo, NumberToShortStringCodec idCodec) {
         this.idCodec = idCodec;
         this.containers = mongo.collection(ContentCategory.CONTAINER.tableName());
         this.programmeGroups = mongo.collection(ContentCategory.PROGRAMME_GROUP.tableName());
+        this.containerCache = null;
+        this.seriesCache = null;
+    }
+
+    public MongoContainerSummaryResolver(DatabasedMongo mongo, NumberToShortStringCodec idCodec,
+            long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        checkArgument(maximumSize > 0, "maximumSize must be positive");
+        this.idCodec = idCodec;
+        this.containers = mongo.collection(ContentCategory.CONTAINER.tableName());
+        this.programmeGroups = mongo.collection(ContentCategory.PROGRAMME_GROUP.tableName());
+        this.containerCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .build();
+        this.seriesCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .build();
     }
 
     @Override
     public Optional<BrandSummary> summarizeTopLevelContainer(ParentRef container) {
-        DBObject containerDbo = containers.findOne(container.getUri(), fields);
+        return Optional.fromNullable(summarizeTopLevelContainers(ImmutableSet.of(container)).get(container.getUri()));
+    }
+
+    @Override
+    public Optional<SeriesSummary> summarizeSeries(ParentRef series) {
+        return Optional.fromNullable(summarizeSeries(ImmutableSet.of(series)).get(series.getUri()));
+    }
 
-        if (containerDbo == null) {
-            return Optional.absent();
+    @Override
+    public Map<String, BrandSummary> summarizeTopLevelContainers(Iterable<ParentRef> containerRefs) {
+        ImmutableMap.Builder<String, BrandSummary> summaries = ImmutableMap.builder();
+        for (Map.Entry<String, DBObject> entry : resolve(containers, containerCache, containerRefs).entrySet()) {
+            summaries.put(entry.getKey(), brandSummary(entry.getValue()));
         }
-        
+        return summaries.build();
+    }
+
+    @Override
+    public Map<String, SeriesSummary> summarizeSeries(Iterable<ParentRef> seriesRefs) {
+        ImmutableMap.Builder<String, SeriesSummary> summaries = ImmutableMap.builder();
+        for (Map.Entry<String, DBObject> entry : resolve(programmeGroups, seriesCache, seriesRefs).entrySet()) {
+            summaries.put(entry.getKey(), seriesSummary(entry.getValue()));
+        }
+        return summaries.build();
+    }
+
+    /**
+     * Drops any cached summaries of the given URIs.
+     */
+    public void invalidate(Iterable<String> uris) {
+        if (containerCache == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        containerCache.invalidateAll(uris);
+        seriesCache.invalidateAll(uris);
+    }
+
+    @Override
+    public void itemChanged(Iterable<? extends Item> items, ChangeType changeType) {
+        // item writes do not change the summarised fields of their containers
+    }
+
+    @Override
+    public void brandChanged(Iterable<? extends Container> containers, ChangeType changeType) {
+        invalidate(ImmutableSet.copyOf(Iterables.transform(containers, Identified.TO_URI)));
+    }
+
+    // projections of the documents for the given refs, keyed by URI; missing documents have no entry
+    private Map<String, DBObject> resolve(DBCollection collection,
+            @Nullable Cache<String, DBObject> cache, Iterable<ParentRef> refs) {
+        Set<String> uris = Sets.newHashSet();
+        for (ParentRef ref : refs) {
+            uris.add(ref.getUri());
+        }
+        Map<String, DBObject> resolved = Maps.newHashMapWithExpectedSize(uris.size());
+        Set<String> toFetch = uris;
+        if (cache != null) {
+            toFetch = Sets.newHashSet();
+            for (String uri : uris) {
+                DBObject cached = cache.getIfPresent(uri);
+                if (cached == null) {
+                    toFetch.add(uri);
+                } else {
+                    resolved.put(uri, cached);
+                }
+            }
+        }
+        if (toFetch.isEmpty()) {
+            return resolved;
+        }
+
+        long generation = invalidations.get();
+        Map<String, DBObject> fetched = Maps.newHashMapWithExpectedSize(toFetch.size());
+        for (DBObject dbo : collection.find(where().idIn(toFetch).build(), fields)) {
+            fetched.put(TranslatorUtils.toString(dbo, ID), dbo);
+        }
+        resolved.putAll(fetched);
+
+        if (cache != null && generation == invalidations.get()) {
+            cache.putAll(fetched);
+        }
+        return resolved;
+    }
+
+    private BrandSummary brandSummary(DBObject containerDbo) {
         BrandSummary summary = new BrandSummary();
         
         Long id = TranslatorUtils.toLong(containerDbo, OPAQUE_ID);
@@ -55,17 +185,10 @@ public class MongoContainerSummaryResolver implements ContainerSummaryResolver {
         summary.setTitle(TranslatorUtils.toString(containerDbo, title));
         summary.setDescription(TranslatorUtils.toString(containerDbo, description));
         summary.setType(TranslatorUtils.toString(containerDbo, type));
-        return Optional.of(summary);
+        return summary;
     }
     
-    @Override
-    public Optional<SeriesSummary> summarizeSeries(ParentRef series) {
-        DBObject containerDbo = programmeGroups.findOne(series.getUri(), fields);
-
-        if (containerDbo == null) {
-            return Optional.absent();
-        }
-        
+    private SeriesSummary seriesSummary(DBObject containerDbo) {
         SeriesSummary summary = new SeriesSummary();
         Long id = TranslatorUtils.toLong(containerDbo, OPAQUE_ID);
         summary.setId(id != null ? idCodec.encode(BigInteger.valueOf(id)) : null);
@@ -76,7 +199,7 @@ public class MongoContainerSummaryResolver implements ContainerSummaryResolver {
         summary.setSeriesNumber(TranslatorUtils.toInteger(containerDbo, seriesNumber));
         summary.setTotalEpisodes(TranslatorUtils.toInteger(containerDbo, totalEpisodes));
         summary.setType(TranslatorUtils.toString(containerDbo, type));
-        return Optional.of(summary);
+        return summary;
     }
 
-}
\ No newline at end of file
+}
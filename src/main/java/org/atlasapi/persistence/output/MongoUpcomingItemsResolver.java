@@ -2,15 +2,16 @@ package org.atlasapi.persistence.output;
 
 import static com.metabroadcast.common.persistence.mongo.MongoBuilders.select;
 import static com.metabroadcast.common.persistence.mongo.MongoBuilders.where;
-import static com.metabroadcast.common.persistence.translator.TranslatorUtils.toDBObjectList;
-import static com.metabroadcast.common.persistence.translator.TranslatorUtils.toDateTime;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import com.metabroadcast.applications.client.model.internal.Application;
 import org.atlasapi.media.entity.ChildRef;
 import org.atlasapi.media.entity.Container;
 import org.atlasapi.media.entity.EntityType;
+import org.atlasapi.media.entity.Identified;
 import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.LookupRef;
 import org.atlasapi.media.entity.Person;
@@ -18,23 +19,29 @@ import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.persistence.content.ContentCategory;
 import org.atlasapi.persistence.media.entity.DescribedTranslator;
 import org.atlasapi.persistence.media.entity.IdentifiedTranslator;
+import org.atlasapi.persistence.media.entity.ItemTranslator;
 import org.joda.time.DateTime;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableMultimap.Builder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.metabroadcast.common.base.MorePredicates;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
 import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.metabroadcast.common.persistence.mongo.MongoQueryBuilder;
 import com.metabroadcast.common.persistence.translator.TranslatorUtils;
 import com.metabroadcast.common.time.Clock;
 import com.metabroadcast.common.time.SystemClock;
+import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 
@@ -45,11 +52,12 @@ public class MongoUpcomingItemsResolver implements UpcomingItemsResolver {
     private final String transmissionEndTime = "transmissionEndTime";
     
     private final String transmissionEndTimeKey = Joiner.on(".").join(versions, broadcasts, transmissionEndTime);
-    private final String containerKey = "container";
+    private final String containerKey = ItemTranslator.CONTAINER;
+    private final String lastBroadcastEndKey = ItemTranslator.LAST_BROADCAST_END;
     
     private final DBObject fields = select().fields(ImmutableSet.of(IdentifiedTranslator.TYPE, 
             IdentifiedTranslator.OPAQUE_ID, DescribedTranslator.PUBLISHER_KEY, 
-            IdentifiedTranslator.LAST_UPDATED, transmissionEndTimeKey))
+            IdentifiedTranslator.LAST_UPDATED, containerKey))
             .build();
 
     private final DBCollection children;
@@ -65,6 +73,22 @@ public class MongoUpcomingItemsResolver implements UpcomingItemsResolver {
         this.topLevelItems = db.collection(ContentCategory.TOP_LEVEL_ITEM.tableName());
         this.clock = clock;
     }
+
+    /**
+     * Index to support the upcoming children queries. It holds every field those
+     * queries return, so for items with a last broadcast end they are answered
+     * from the index alone. It supersedes the earlier (container,
+     * lastBroadcastEnd) index, which can be dropped once this one is built.
+     */
+    public static DBObject toIndex() {
+        return new BasicDBObject(ItemTranslator.CONTAINER, 1)
+                .append(ItemTranslator.LAST_BROADCAST_END, 1)
+                .append(DescribedTranslator.PUBLISHER_KEY, 1)
+                .append(IdentifiedTranslator.TYPE, 1)
+                .append(IdentifiedTranslator.OPAQUE_ID, 1)
+                .append(IdentifiedTranslator.LAST_UPDATED, 1)
+                .append(MongoConstants.ID, 1);
+    }
     
     @Override
     public Iterable<ChildRef> upcomingItemsFor(Container container) {
@@ -73,76 +97,89 @@ public class MongoUpcomingItemsResolver implements UpcomingItemsResolver {
     
     @Override
     public Multimap<Publisher, ChildRef> upcomingItemsByPublisherFor(Container container) {
-        final DateTime now = clock.now();
-        return filterToChildRef(now, broadcastEndsForChildrenOf(container, now));
+        Multimap<Publisher, ChildRef> upcoming = upcomingItemsByPublisherFor(ImmutableList.of(container))
+                .get(container.getCanonicalUri());
+        return upcoming != null ? upcoming : ImmutableMultimap.<Publisher, ChildRef>of();
     }
-    
+
     @Override
-    public Multimap<Publisher, ChildRef> upcomingItemsByPublisherFor(Item item, Application application) {
-        final DateTime now = clock.now();
-        return filterToChildRef(now, broadcastEndsForEquivalentTo(item, application));
+    public Map<String, Multimap<Publisher, ChildRef>> upcomingItemsByPublisherFor(
+            Iterable<? extends Container> containers) {
+        ImmutableSet<String> containerUris = ImmutableSet.copyOf(Iterables.transform(containers, Identified.TO_URI));
+        if (containerUris.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        DateTime now = clock.now();
+        // queried separately rather than through upcomingAt's $or, so that the
+        // common case stays covered by toIndex()
+        DBObject recorded = where().fieldIn(containerKey, containerUris)
+                .fieldAfter(lastBroadcastEndKey, now)
+                .build();
+        DBObject legacy = legacyUpcoming(now, where().fieldIn(containerKey, containerUris)).build();
+
+        Map<String, ImmutableMultimap.Builder<Publisher, ChildRef>> builders = Maps.newHashMap();
+        for (DBObject dbo : Iterables.concat(children.find(recorded, fields), children.find(legacy, fields))) {
+            String container = TranslatorUtils.toString(dbo, containerKey);
+            ImmutableMultimap.Builder<Publisher, ChildRef> builder = builders.get(container);
+            if (builder == null) {
+                builder = ImmutableMultimap.builder();
+                builders.put(container, builder);
+            }
+            put(builder, dbo);
+        }
+
+        ImmutableMap.Builder<String, Multimap<Publisher, ChildRef>> upcoming = ImmutableMap.builder();
+        for (Entry<String, ImmutableMultimap.Builder<Publisher, ChildRef>> entry : builders.entrySet()) {
+            upcoming.put(entry.getKey(), entry.getValue().build());
+        }
+        return upcoming.build();
     }
     
-    private Iterable<DBObject> broadcastEndsForEquivalentTo(Item item, Application application) {
-        final DateTime now = clock.now();
-        DBObject query = where()
+    @Override
+    public Multimap<Publisher, ChildRef> upcomingItemsByPublisherFor(Item item, Application application) {
+        DBObject query = upcomingAt(clock.now(), where()
                 .idIn(FluentIterable.from(item.getEquivalentTo())
                                     .filter(sourceFilter(application.getConfiguration().getEnabledReadSources()))
                                     .transform(LookupRef.TO_URI)
-                     )
-                .fieldAfter(transmissionEndTime, now)
-                .build();
-        return Iterables.concat(children.find(query,fields), topLevelItems.find(query,fields));
+                     ));
+        return toChildRefs(Iterables.concat(children.find(query,fields), topLevelItems.find(query,fields)));
     }
     
     @Override
     public Iterable<ChildRef> upcomingItemsFor(Person person) {
-        final DateTime now = clock.now();
-        return filterToChildRef(now, broadcastEndsForItemsOf(person, now)).values();
+        DBObject query = upcomingAt(clock.now(), where()
+            .idIn(Iterables.transform(person.getContents(), ChildRef.TO_URI)));
+        return toChildRefs(Iterables.concat(children.find(query,fields), topLevelItems.find(query,fields))).values();
     }
 
-    private Multimap<Publisher, ChildRef> filterToChildRef(
-            final DateTime now,
-            Iterable<DBObject> broadcastEnds
-    ) {
-        
-        Builder<Publisher, ChildRef> builder = ImmutableMultimap.builder();
-        
-        for (DBObject dbo : broadcastEnds) {
-            for (DBObject version : toDBObjectList(dbo, versions)) {
-                for (DBObject broadcast : toDBObjectList(version, broadcasts)) {
-                    if (after(toDateTime(broadcast, transmissionEndTime), now)) {
-                        String uri = TranslatorUtils.toString(dbo, MongoConstants.ID);
-                        Long aid = TranslatorUtils.toLong(dbo, IdentifiedTranslator.OPAQUE_ID);
-                        String type = TranslatorUtils.toString(dbo, IdentifiedTranslator.TYPE);
-                        DateTime lastUpdated = TranslatorUtils.toDateTime(dbo, IdentifiedTranslator.LAST_UPDATED);
-                        Publisher publisher = Publisher.fromKey(TranslatorUtils.toString(dbo, DescribedTranslator.PUBLISHER_KEY)).requireValue();
-                        builder.put(publisher, new ChildRef(aid, uri, "", lastUpdated, EntityType.from(type)));
-                    }
-                }
-            }
-        }
-        return builder.build();
+    // items written before the last broadcast end was recorded fall back to
+    // matching on the broadcasts themselves until they are next written.
+    private DBObject upcomingAt(DateTime now, MongoQueryBuilder query) {
+        return query
+            .or(new MongoQueryBuilder().fieldAfter(lastBroadcastEndKey, now),
+                legacyUpcoming(now, new MongoQueryBuilder()))
+            .build();
     }
-    
-    private boolean after(DateTime dateTime, DateTime now) {
-        return dateTime != null && dateTime.isAfter(now);
+
+    private MongoQueryBuilder legacyUpcoming(DateTime now, MongoQueryBuilder query) {
+        return query.doesNotExist(lastBroadcastEndKey).fieldAfter(transmissionEndTimeKey, now);
     }
 
-    private Iterable<DBObject> broadcastEndsForChildrenOf(Container container, DateTime time) {
-        DBObject query = where()
-            .fieldEquals(containerKey, container.getCanonicalUri())
-            .fieldAfter(transmissionEndTimeKey, time)
-            .build();
-        return children.find(query,fields);
+    private Multimap<Publisher, ChildRef> toChildRefs(Iterable<DBObject> upcomingItems) {
+        Builder<Publisher, ChildRef> builder = ImmutableMultimap.builder();
+        for (DBObject dbo : upcomingItems) {
+            put(builder, dbo);
+        }
+        return builder.build();
     }
 
-    private Iterable<DBObject> broadcastEndsForItemsOf(Person person, DateTime time) {
-        DBObject query = where()
-            .idIn(Iterables.transform(person.getContents(), ChildRef.TO_URI))
-            .fieldAfter(transmissionEndTimeKey, time)
-            .build();
-        return Iterables.concat(children.find(query,fields), topLevelItems.find(query,fields));
+    private void put(Builder<Publisher, ChildRef> builder, DBObject dbo) {
+        String uri = TranslatorUtils.toString(dbo, MongoConstants.ID);
+        Long aid = TranslatorUtils.toLong(dbo, IdentifiedTranslator.OPAQUE_ID);
+        String type = TranslatorUtils.toString(dbo, IdentifiedTranslator.TYPE);
+        DateTime lastUpdated = TranslatorUtils.toDateTime(dbo, IdentifiedTranslator.LAST_UPDATED);
+        Publisher publisher = Publisher.fromKey(TranslatorUtils.toString(dbo, DescribedTranslator.PUBLISHER_KEY)).requireValue();
+        builder.put(publisher, new ChildRef(aid, uri, "", lastUpdated, EntityType.from(type)));
     }
     
     private Predicate<LookupRef> sourceFilter(Collection<Publisher> sources) {
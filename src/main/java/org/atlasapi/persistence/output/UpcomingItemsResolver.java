@@ -1,5 +1,7 @@
 package org.atlasapi.persistence.output;
 
+import java.util.Map;
+
 import com.metabroadcast.applications.client.model.internal.Application;
 import org.atlasapi.media.entity.ChildRef;
 import org.atlasapi.media.entity.Container;
@@ -7,6 +9,7 @@ import org.atlasapi.media.entity.Item;
 import org.atlasapi.media.entity.Person;
 import org.atlasapi.media.entity.Publisher;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 public interface UpcomingItemsResolver {
@@ -16,6 +19,22 @@ public interface UpcomingItemsResolver {
     Iterable<ChildRef> upcomingItemsFor(Person person);
     
     Multimap<Publisher, ChildRef> upcomingItemsByPublisherFor(Container container);
+
+    /**
+     * Upcoming items of each of the given containers, keyed by container URI.
+     * Containers without upcoming items have no entry.
+     */
+    default Map<String, Multimap<Publisher, ChildRef>> upcomingItemsByPublisherFor(
+            Iterable<? extends Container> containers) {
+        Map<String, Multimap<Publisher, ChildRef>> upcoming = Maps.newLinkedHashMap();
+        for (Container container : containers) {
+            Multimap<Publisher, ChildRef> items = upcomingItemsByPublisherFor(container);
+            if (!items.isEmpty()) {
+                upcoming.put(container.getCanonicalUri(), items);
+            }
+        }
+        return upcoming;
+    }
     
     Multimap<Publisher, ChildRef> upcomingItemsByPublisherFor(Item container, Application application);
 
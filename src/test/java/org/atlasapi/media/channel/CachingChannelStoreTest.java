@@ -0,0 +1,74 @@
+package org.atlasapi.media.channel;
+
+import org.atlasapi.media.entity.Publisher;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.TimeMachine;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingChannelStoreTest {
+
+    private final DateTime start = new DateTime(2015, 3, 20, 12, 0, 0, 0, DateTimeZones.UTC);
+    private final TimeMachine clock = new TimeMachine();
+    private final ChannelStore delegate = mock(ChannelStore.class);
+    private final CachingChannelStore store = new CachingChannelStore(
+            delegate, Duration.standardSeconds(10), Duration.standardMinutes(5), clock
+    );
+
+    @Before
+    public void setUp() {
+        clock.jumpTo(start);
+    }
+
+    @Test
+    public void testDeltaIsQueriedFromWhenThePreviousLoadStarted() {
+        Channel futureDated = channel(1L, "one");
+        futureDated.setLastUpdated(start.plusYears(1));
+        when(delegate.all()).thenReturn(ImmutableList.of(futureDated));
+        when(delegate.updatedSince(any(DateTime.class))).thenReturn(ImmutableList.of());
+
+        store.refreshCache();
+        clock.jumpTo(start.plusMinutes(10));
+        store.applyUpdates();
+        store.applyUpdates();
+
+        verify(delegate).updatedSince(start.minusMinutes(1));
+        verify(delegate).updatedSince(start.plusMinutes(9));
+    }
+
+    @Test
+    public void testReloadKeepsChannelsWrittenWhileItWasReading() {
+        Channel original = channel(1L, "original");
+        Channel written = channel(1L, "written");
+        when(delegate.createOrUpdate(written)).thenReturn(written);
+        when(delegate.all()).thenAnswer(invocation -> {
+            store.createOrUpdate(written);
+            return ImmutableList.of(original);
+        });
+
+        store.refreshCache();
+
+        assertThat(Iterables.getOnlyElement(store.all()), is(sameInstance(written)));
+    }
+
+    private Channel channel(long id, String uri) {
+        Channel channel = new Channel();
+        channel.setId(id);
+        channel.setCanonicalUri(uri);
+        channel.setSource(Publisher.BBC);
+        return channel;
+    }
+}
@@ -0,0 +1,104 @@
+package org.atlasapi.media.channel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class ChannelGroupSnapshotTest {
+
+    private final Platform platform = platform(1L);
+    private final Region north = region(2L, 1L);
+    private final Region south = region(3L, 1L);
+
+    @Test
+    public void testIndexesRegionsByPlatform() {
+        ChannelGroupSnapshot snapshot = new ChannelGroupSnapshot(ImmutableList.of(south, platform, north));
+
+        assertThat(snapshot.all(), contains(platform, north, south));
+        assertThat(snapshot.regionsFor(1L), contains(north, south));
+        assertThat(snapshot.regionsFor(2L), is(empty()));
+    }
+
+    @Test
+    public void testIndexesGroupsByNumberedChannel() {
+        platform.addChannelNumbering(numbering(100L, 1L, "1"));
+        north.addChannelNumbering(numbering(100L, 2L, "101"));
+        south.addChannelNumbering(numbering(200L, 3L, "1"));
+        ChannelGroupSnapshot snapshot = new ChannelGroupSnapshot(ImmutableList.of(platform, north, south));
+
+        assertThat(snapshot.forChannel(100L), contains(platform, north));
+        assertThat(snapshot.forChannel(200L), contains(south));
+        assertThat(snapshot.forChannel(300L), is(empty()));
+    }
+
+    @Test
+    public void testIndexesAliases() {
+        north.setAliasUrls(ImmutableSet.of("http://example.com/north"));
+        ChannelGroupSnapshot snapshot = new ChannelGroupSnapshot(ImmutableList.of(platform, north, south));
+
+        assertThat(ids(snapshot.forAlias("http://example.com/north")), contains(2L));
+    }
+
+    @Test
+    public void testChangesProduceNewSnapshot() {
+        ChannelGroupSnapshot snapshot = new ChannelGroupSnapshot(ImmutableList.of(platform, north));
+        Region moved = region(2L, 4L);
+
+        ChannelGroupSnapshot changed = snapshot.withChanges(
+                ImmutableList.of(moved, south),
+                ImmutableList.of(1L)
+        );
+
+        assertThat(changed.forId(1L), is(nullValue()));
+        assertThat(ids(changed.regionsFor(1L)), contains(3L));
+        assertThat(ids(changed.regionsFor(4L)), contains(2L));
+        assertThat(snapshot.regionsFor(1L), contains(north));
+    }
+
+    @Test
+    public void testResolvedGroupsAreCopies() {
+        ChannelGroupSnapshot snapshot = new ChannelGroupSnapshot(ImmutableList.of(platform, north));
+
+        ChannelGroup resolved = snapshot.forId(2L);
+        resolved.addChannelNumbering(numbering(100L, 2L, "101"));
+
+        assertThat(resolved.getChannelNumberings().size(), is(1));
+        assertThat(snapshot.forId(2L).getChannelNumberings().size(), is(0));
+    }
+
+    private static ImmutableList<Long> ids(Iterable<? extends ChannelGroup> groups) {
+        ImmutableList.Builder<Long> ids = ImmutableList.builder();
+        for (ChannelGroup group : groups) {
+            ids.add(group.getId());
+        }
+        return ids.build();
+    }
+
+    private static ChannelNumbering numbering(long channel, long group, String number) {
+        return ChannelNumbering.builder()
+                .withChannel(channel)
+                .withChannelGroup(group)
+                .withChannelNumber(number)
+                .build();
+    }
+
+    private static Platform platform(long id) {
+        Platform platform = new Platform();
+        platform.setId(id);
+        return platform;
+    }
+
+    private static Region region(long id, long platform) {
+        Region region = new Region();
+        region.setId(id);
+        region.setPlatform(platform);
+        return region;
+    }
+}
@@ -0,0 +1,112 @@
+package org.atlasapi.media.channel;
+
+import java.util.List;
+
+import org.atlasapi.media.entity.Alias;
+import org.atlasapi.media.entity.MediaType;
+import org.atlasapi.media.entity.Publisher;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+public class ChannelSnapshotTest {
+
+    private final DateTime now = DateTime.now();
+
+    private final Channel sport = channel(1L, "uri1", Publisher.BBC, "sport", now.minusDays(1));
+    private final Channel film = channel(2L, "uri2", Publisher.PA, "film", null);
+    private final Channel news = channel(3L, "uri3", Publisher.BBC, "news", now.plusDays(1));
+
+    private final ChannelSnapshot snapshot = new ChannelSnapshot(ImmutableList.of(sport, film, news));
+
+    @Test
+    public void testEmptyQueryReturnsAllChannelsInOrder() {
+        assertThat(query(ChannelQuery.builder().build()), contains(sport, film, news));
+    }
+
+    @Test
+    public void testMatchesAnyGenre() {
+        ChannelQuery query = ChannelQuery.builder()
+                .withGenres(ImmutableSet.of("news", "sport"))
+                .build();
+
+        assertThat(query(query), contains(sport, news));
+    }
+
+    @Test
+    public void testCombinesCriteria() {
+        ChannelQuery query = ChannelQuery.builder()
+                .withPublisher(Publisher.BBC)
+                .withGenres(ImmutableSet.of("news", "film"))
+                .build();
+
+        assertThat(query(query), contains(news));
+    }
+
+    @Test
+    public void testAdvertisedOnExcludesChannelsWithoutAdvertiseFrom() {
+        ChannelQuery query = ChannelQuery.builder().withAdvertisedOn(now).build();
+
+        assertThat(query(query), contains(sport));
+    }
+
+    @Test
+    public void testMatchesChannelGroupsAndAliases() {
+        film.setChannelNumbers(ImmutableList.of(
+                ChannelNumbering.builder().withChannel(2L).withChannelGroup(10L).withChannelNumber("1").build()
+        ));
+        film.setAliases(ImmutableList.of(new Alias("dragons", "everywhere")));
+        ChannelSnapshot snapshot = new ChannelSnapshot(ImmutableList.of(sport, film, news));
+
+        assertThat(snapshot.query(ChannelQuery.builder()
+                .withChannelGroups(ImmutableSet.of(10L, 11L))
+                .build()), contains(film));
+        assertThat(snapshot.query(ChannelQuery.builder()
+                .withAliasNamespace("dragons")
+                .withAliasValue("everywhere")
+                .build()), contains(film));
+    }
+
+    @Test
+    public void testUnknownValueMatchesNothing() {
+        ChannelQuery query = ChannelQuery.builder().withUri("unknown").build();
+
+        assertThat(query(query), empty());
+    }
+
+    @Test
+    public void testUpdatesReplaceAndInsertInIdOrder() {
+        Channel renamed = channel(2L, "uri2", Publisher.PA, "news", null);
+        Channel added = channel(0L, "uri0", Publisher.PA, "news", null);
+
+        ChannelSnapshot updated = snapshot.withUpdates(ImmutableList.of(renamed, added));
+
+        assertThat(updated.all(), contains(added, sport, renamed, news));
+        assertThat(updated.query(ChannelQuery.builder()
+                .withGenres(ImmutableSet.of("news"))
+                .build()), contains(added, renamed, news));
+        assertThat(snapshot.all(), contains(sport, film, news));
+    }
+
+    private List<Channel> query(ChannelQuery query) {
+        return snapshot.query(query);
+    }
+
+    private static Channel channel(long id, String uri, Publisher source, String genre,
+            DateTime advertiseFrom) {
+        Channel channel = new Channel();
+        channel.setId(id);
+        channel.setCanonicalUri(uri);
+        channel.setSource(source);
+        channel.setMediaType(MediaType.VIDEO);
+        channel.setGenres(ImmutableSet.of(genre));
+        channel.setAdvertiseFrom(advertiseFrom);
+        return channel;
+    }
+}
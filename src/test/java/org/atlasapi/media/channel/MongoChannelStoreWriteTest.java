@@ -199,6 +199,64 @@ public class MongoChannelStoreWriteTest extends TestCase {
         );
     }
 
+    @Test
+    public void testBulkWriteNumbersEveryChannelInSharedGroup() {
+        ChannelGroup platform = new Platform();
+        Long platformId = channelGroupStore.createOrUpdate(platform).getId();
+
+        Channel first = channelStore.createOrUpdate(channel("first", "key1", MediaType.VIDEO, null, "test/1"));
+        Channel second = channelStore.createOrUpdate(channel("second", "key2", MediaType.VIDEO, null, "test/2"));
+
+        ChannelNumbering firstNumbering = ChannelNumbering.builder()
+                .withChannel(first)
+                .withChannelGroup(platform)
+                .withChannelNumber("1")
+                .build();
+        ChannelNumbering secondNumbering = ChannelNumbering.builder()
+                .withChannel(second)
+                .withChannelGroup(platform)
+                .withChannelNumber("2")
+                .build();
+        first.addChannelNumber(firstNumbering);
+        second.addChannelNumber(secondNumbering);
+
+        channelStore.createOrUpdateAll(ImmutableList.of(first, second));
+
+        platform = channelGroupStore.channelGroupFor(platformId).get();
+        assertEquals(
+                ImmutableSet.of(firstNumbering, secondNumbering),
+                ImmutableSet.copyOf(platform.getChannelNumberings())
+        );
+        assertEquals(
+                ImmutableSet.of(firstNumbering),
+                ImmutableSet.copyOf(channelStore.fromUri("first").requireValue().getChannelNumbers())
+        );
+    }
+
+    @Test
+    public void testBulkWriteRejectsRepeatedUri() {
+        Channel first = channel("repeated", "key1", MediaType.VIDEO, null, "test/1");
+        Channel second = channel("repeated", "key2", MediaType.VIDEO, null, "test/2");
+
+        try {
+            channelStore.createOrUpdateAll(ImmutableList.of(first, second));
+            fail("Expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertFalse(channelStore.fromUri("repeated").hasValue());
+        }
+    }
+
+    @Test
+    public void testBulkWriteWithoutNumberingsTouchesNoGroups() {
+        Channel first = channel("first", "key1", MediaType.VIDEO, null, "test/1");
+        Channel second = channel("second", "key2", MediaType.VIDEO, null, "test/2");
+
+        channelStore.createOrUpdateAll(ImmutableList.of(first, second));
+
+        assertTrue(channelStore.fromUri("first").hasValue());
+        assertTrue(channelStore.fromUri("second").hasValue());
+    }
+
     @Test
     public void testWritesWithNoIdThrowsException() {
         exception.expect(NullPointerException.class);
@@ -0,0 +1,53 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import com.google.common.primitives.Longs;
+import com.metabroadcast.common.time.Timestamp;
+
+public class CoalescingEntityUpdatedMessageSenderTest {
+
+    private final RecordingSender<EntityUpdatedMessage> delegate = new RecordingSender<>();
+    private final SettableTicker ticker = new SettableTicker();
+    private final CoalescingEntityUpdatedMessageSender sender = new CoalescingEntityUpdatedMessageSender(
+            delegate, Duration.standardMinutes(1), Duration.standardMinutes(3), ticker);
+
+    @Test
+    public void testSendsOnlyLatestMessagePerEntityOnceWindowCloses() throws Exception {
+        sender.sendMessage(message("1", "cbbh"), Longs.toByteArray(1));
+        sender.sendMessage(message("2", "cbbh"), Longs.toByteArray(1));
+        sender.sendMessage(message("3", "cbbj"), Longs.toByteArray(2));
+
+        ticker.advance(59, TimeUnit.SECONDS);
+        sender.sendDue();
+        assertThat(delegate.sent.isEmpty(), is(true));
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        sender.sendDue();
+        assertThat(delegate.sentIds(), containsInAnyOrder("2", "3"));
+        assertThat(sender.pendingCount(), is(0));
+    }
+
+    @Test
+    public void testContinuouslyUpdatedEntityIsSentWithinMaxDelay() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            sender.sendMessage(message(String.valueOf(i), "cbbh"), Longs.toByteArray(1));
+            ticker.advance(50, TimeUnit.SECONDS);
+            sender.sendDue();
+        }
+
+        assertThat(delegate.sentIds(), contains("3"));
+    }
+
+    private EntityUpdatedMessage message(String messageId, String entityId) {
+        return new EntityUpdatedMessage(messageId, Timestamp.of(1L), entityId, "item", "bbc.co.uk");
+    }
+}
@@ -0,0 +1,51 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.Timestamp;
+
+public class CoalescingScheduleUpdateMessageSenderTest {
+
+    private final RecordingSender<ScheduleUpdateMessage> delegate = new RecordingSender<>();
+    private final SettableTicker ticker = new SettableTicker();
+    private final CoalescingScheduleUpdateMessageSender sender = new CoalescingScheduleUpdateMessageSender(
+            delegate, Duration.standardSeconds(10), Duration.standardMinutes(1), ticker);
+
+    @Test
+    public void testMergesUpdatesForChannelAndSourceIntoCoveringInterval() throws Exception {
+        sender.sendMessage(message("1", "bbc.co.uk", "hkqs", 10, 12), "hkqs".getBytes());
+        sender.sendMessage(message("2", "bbc.co.uk", "hkqs", 11, 14), "hkqs".getBytes());
+        sender.sendMessage(message("3", "bbc.co.uk", "hkqs", 8, 9), "hkqs".getBytes());
+        sender.sendMessage(message("4", "pressassociation.com", "hkqs", 10, 12), "hkqs".getBytes());
+
+        ticker.advance(10, TimeUnit.SECONDS);
+        sender.sendDue();
+
+        List<ScheduleUpdateMessage> sent = delegate.sent;
+        assertThat(sent.size(), is(2));
+        ScheduleUpdateMessage merged = sent.get(0).getSource().equals("bbc.co.uk") ? sent.get(0) : sent.get(1);
+        assertThat(merged.getMessageId(), is("3"));
+        assertThat(merged.getUpdateStart(), is(hour(8)));
+        assertThat(merged.getUpdateEnd(), is(hour(14)));
+        assertThat(sender.pendingCount(), is(0));
+    }
+
+    private ScheduleUpdateMessage message(String messageId, String source, String channel,
+            int startHour, int endHour) {
+        return new ScheduleUpdateMessage(messageId, Timestamp.of(1L), source, channel,
+                hour(startHour), hour(endHour));
+    }
+
+    private DateTime hour(int hour) {
+        return new DateTime(2016, 7, 4, hour, 0, 0, 0, DateTimeZones.UTC);
+    }
+}
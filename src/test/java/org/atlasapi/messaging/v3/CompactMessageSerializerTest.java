@@ -0,0 +1,190 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.atlasapi.messaging.v3.CompactMessageSerializer.WireFormat;
+import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessage.AdjacentRef;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.metabroadcast.common.queue.MessageDeserializationException;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.Timestamp;
+
+public class CompactMessageSerializerTest {
+
+    private final CompactMessageSerializer<EntityUpdatedMessage> entitySerializer
+        = CompactMessageSerializer.forType(EntityUpdatedMessage.class, WireFormat.BINARY);
+
+    @Test
+    public void binaryEntityUpdatedMessageRoundTrips() throws Exception {
+        EntityUpdatedMessage msg = new EntityUpdatedMessage("mid", Timestamp.of(1467677805408L),
+                "cyz", "item", "bbc.co.uk");
+
+        byte[] serialized = entitySerializer.serialize(msg);
+        assertThat(serialized[0], is(CompactMessageSerializer.MAGIC));
+        assertThat(serialized[1], is(CompactMessageSerializer.VERSION));
+
+        EntityUpdatedMessage deserialized = entitySerializer.deserialize(serialized);
+        assertEquals(msg.getMessageId(), deserialized.getMessageId());
+        assertEquals(msg.getTimestamp(), deserialized.getTimestamp());
+        assertEquals(msg.getEntityId(), deserialized.getEntityId());
+        assertEquals(msg.getEntityType(), deserialized.getEntityType());
+        assertEquals(msg.getEntitySource(), deserialized.getEntitySource());
+    }
+
+    @Test
+    public void binaryScheduleUpdateMessageRoundTrips() throws Exception {
+        CompactMessageSerializer<ScheduleUpdateMessage> serializer
+            = CompactMessageSerializer.forType(ScheduleUpdateMessage.class, WireFormat.BINARY);
+        ScheduleUpdateMessage msg = new ScheduleUpdateMessage("mid", Timestamp.of(1L), "bbc.co.uk",
+                "hkqs", new DateTime(0, DateTimeZones.UTC), new DateTime(86400, DateTimeZones.UTC));
+
+        ScheduleUpdateMessage deserialized = serializer.deserialize(serializer.serialize(msg));
+
+        assertEquals(msg.getMessageId(), deserialized.getMessageId());
+        assertEquals(msg.getTimestamp(), deserialized.getTimestamp());
+        assertEquals(msg.getSource(), deserialized.getSource());
+        assertEquals(msg.getChannel(), deserialized.getChannel());
+        assertEquals(msg.getUpdateStart(), deserialized.getUpdateStart());
+        assertEquals(msg.getUpdateEnd(), deserialized.getUpdateEnd());
+    }
+
+    @Test
+    public void binaryAssertionMessageRoundTripsAndIsSmallerThanJson() throws Exception {
+        CompactMessageSerializer<ContentEquivalenceAssertionMessage> serializer
+            = CompactMessageSerializer.forType(ContentEquivalenceAssertionMessage.class, WireFormat.BINARY);
+        ContentEquivalenceAssertionMessage msg = new ContentEquivalenceAssertionMessage("mid",
+                Timestamp.of(1L), "cyz", "item", "bbc.co.uk",
+                ImmutableList.of(
+                    new AdjacentRef("cyy", "item", "pressassociation.com"),
+                    new AdjacentRef("cyx", "item", "pressassociation.com"),
+                    new AdjacentRef("cyw", "episode", "bbc.co.uk")
+                ),
+                ImmutableSet.of("bbc.co.uk", "pressassociation.com"));
+
+        byte[] binary = serializer.serialize(msg);
+        ContentEquivalenceAssertionMessage deserialized = serializer.deserialize(binary);
+
+        assertEquals(msg.getMessageId(), deserialized.getMessageId());
+        assertEquals(msg.getTimestamp(), deserialized.getTimestamp());
+        assertEquals(msg.getEntityId(), deserialized.getEntityId());
+        assertEquals(msg.getEntityType(), deserialized.getEntityType());
+        assertEquals(msg.getEntitySource(), deserialized.getEntitySource());
+        assertEquals(msg.getAdjacent(), deserialized.getAdjacent());
+        assertEquals(msg.getSources(), deserialized.getSources());
+
+        byte[] json = JacksonMessageSerializer.forType(ContentEquivalenceAssertionMessage.class).serialize(msg);
+        assertThat(binary.length, lessThan(json.length));
+    }
+
+    @Test
+    public void binaryMessagesWithNullFieldsRoundTrip() throws Exception {
+        EntityUpdatedMessage entityMsg = new EntityUpdatedMessage("mid", Timestamp.of(1L), "cyz", null, null);
+
+        EntityUpdatedMessage entityDeserialized = entitySerializer.deserialize(
+                entitySerializer.serialize(entityMsg));
+
+        assertEquals("mid", entityDeserialized.getMessageId());
+        assertEquals("cyz", entityDeserialized.getEntityId());
+        assertNull(entityDeserialized.getEntityType());
+        assertNull(entityDeserialized.getEntitySource());
+
+        CompactMessageSerializer<ScheduleUpdateMessage> scheduleSerializer
+            = CompactMessageSerializer.forType(ScheduleUpdateMessage.class, WireFormat.BINARY);
+        ScheduleUpdateMessage scheduleMsg = new ScheduleUpdateMessage("mid", Timestamp.of(1L),
+                "bbc.co.uk", null, new DateTime(0, DateTimeZones.UTC), null);
+
+        ScheduleUpdateMessage scheduleDeserialized = scheduleSerializer.deserialize(
+                scheduleSerializer.serialize(scheduleMsg));
+
+        assertNull(scheduleDeserialized.getChannel());
+        assertEquals(scheduleMsg.getUpdateStart(), scheduleDeserialized.getUpdateStart());
+        assertNull(scheduleDeserialized.getUpdateEnd());
+
+        CompactMessageSerializer<ContentEquivalenceAssertionMessage> assertionSerializer
+            = CompactMessageSerializer.forType(ContentEquivalenceAssertionMessage.class, WireFormat.BINARY);
+        ContentEquivalenceAssertionMessage assertionMsg = new ContentEquivalenceAssertionMessage("mid",
+                Timestamp.of(1L), "cyz", "item", null,
+                ImmutableList.of(new AdjacentRef("cyy", "item", "pressassociation.com")),
+                ImmutableSet.of("pressassociation.com"));
+
+        ContentEquivalenceAssertionMessage assertionDeserialized = assertionSerializer.deserialize(
+                assertionSerializer.serialize(assertionMsg));
+
+        assertNull(assertionDeserialized.getEntitySource());
+        assertEquals(assertionMsg.getAdjacent(), assertionDeserialized.getAdjacent());
+        assertEquals(assertionMsg.getSources(), assertionDeserialized.getSources());
+    }
+
+    @Test
+    public void jsonWriterStillWritesJsonReadableByBothSerializers() throws Exception {
+        CompactMessageSerializer<EntityUpdatedMessage> jsonWriter
+            = CompactMessageSerializer.forType(EntityUpdatedMessage.class, WireFormat.JSON);
+        EntityUpdatedMessage msg = new EntityUpdatedMessage("mid", Timestamp.of(1L), "cyz", "item", "bbc.co.uk");
+
+        byte[] serialized = jsonWriter.serialize(msg);
+        assertThat(serialized[0], is((byte) '{'));
+
+        assertEquals(msg.getEntityId(), entitySerializer.deserialize(serialized).getEntityId());
+        assertEquals(msg.getEntityId(),
+                JacksonMessageSerializer.forType(EntityUpdatedMessage.class).deserialize(serialized).getEntityId());
+    }
+
+    @Test
+    public void detectsJsonWithObjectLongTimestamp() throws Exception {
+        EntityUpdatedMessage deserialized = entitySerializer.deserialize(json(
+                "{\"@class\":\"com.metabroadcast.common.time.Timestamp\","
+                + "\"millis\":[\"java.lang.Long\", 1467677805408]}"));
+
+        assertThat(deserialized.getEntityId(), is("cyz"));
+        assertThat(deserialized.getTimestamp(), is(Timestamp.of(1467677805408L)));
+    }
+
+    @Test
+    public void detectsJsonWithPrimitiveLongTimestamp() throws Exception {
+        EntityUpdatedMessage deserialized = entitySerializer.deserialize(json(
+                "{\"@class\":\"com.metabroadcast.common.time.Timestamp\","
+                + "\"millis\":1467677805408}"));
+
+        assertThat(deserialized.getEntityId(), is("cyz"));
+        assertThat(deserialized.getTimestamp(), is(Timestamp.of(1467677805408L)));
+    }
+
+    @Test(expected = MessageDeserializationException.class)
+    public void rejectsUnknownBinaryVersion() throws Exception {
+        byte[] serialized = entitySerializer.serialize(
+                new EntityUpdatedMessage("mid", Timestamp.of(1L), "cyz", "item", "bbc.co.uk"));
+        serialized[1] = (byte) (CompactMessageSerializer.VERSION + 1);
+
+        entitySerializer.deserialize(serialized);
+    }
+
+    @Test(expected = MessageDeserializationException.class)
+    public void rejectsBinaryMessageOfAnotherType() throws Exception {
+        CompactMessageSerializer<ScheduleUpdateMessage> scheduleSerializer
+            = CompactMessageSerializer.forType(ScheduleUpdateMessage.class, WireFormat.BINARY);
+        byte[] serialized = scheduleSerializer.serialize(new ScheduleUpdateMessage("mid", Timestamp.of(1L),
+                "bbc.co.uk", "hkqs", new DateTime(0, DateTimeZones.UTC), new DateTime(1, DateTimeZones.UTC)));
+
+        entitySerializer.deserialize(serialized);
+    }
+
+    private byte[] json(String timestamp) {
+        return ("{"
+                + "\"@class\":\"org.atlasapi.messaging.v3.EntityUpdatedMessage\","
+                + "\"messageId\":\"70281e3e-c71c-4bbb-810d-81f31592bf2f\","
+                + "\"timestamp\":" + timestamp + ","
+                + "\"entityId\":\"cyz\","
+                + "\"entityType\":\"item\","
+                + "\"entitySource\":\"bbc.co.uk\""
+                + "}").getBytes(Charsets.UTF_8);
+    }
+}
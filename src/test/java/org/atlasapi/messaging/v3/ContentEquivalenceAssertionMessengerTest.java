@@ -0,0 +1,120 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyIterableOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessenger.Assertion;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+import com.metabroadcast.common.ids.NumberToShortStringCodec;
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.time.SystemClock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ContentEquivalenceAssertionMessengerTest {
+
+    @SuppressWarnings("unchecked")
+    private final MessageSender<ContentEquivalenceAssertionMessage> sender =
+            (MessageSender<ContentEquivalenceAssertionMessage>) mock(MessageSender.class);
+    private final LookupEntryStore lookupEntryStore = mock(LookupEntryStore.class);
+    private final ContentEquivalenceAssertionMessenger messenger =
+            ContentEquivalenceAssertionMessenger.create(sender, new SystemClock(), lookupEntryStore);
+
+    private final NumberToShortStringCodec codec = SubstitutionTableNumberCodec.lowerCaseOnly();
+
+    private final Item lowest = item(1L, "lowest");
+    private final Item subject = item(5L, "subject");
+    private final Item other = item(7L, "other");
+
+    @Test
+    public void testUsesCallersLookupEntryForPartitionKey() throws Exception {
+        messenger.sendMessage(subject, ImmutableList.of(), ImmutableSet.of(), entryInGraph(subject, lowest));
+
+        verify(sender).sendMessage(any(ContentEquivalenceAssertionMessage.class), eq(Longs.toByteArray(1L)));
+        verify(lookupEntryStore, never()).entriesForIds(anyIterableOf(Long.class));
+    }
+
+    @Test
+    public void testReadsPartitionKeysForBatchOnceAndCachesThem() throws Exception {
+        when(lookupEntryStore.entriesForIds(anyIterableOf(Long.class))).thenReturn(
+                ImmutableList.of(entryInGraph(subject, lowest), entryInGraph(other))
+        );
+
+        messenger.sendMessages(ImmutableList.of(
+                new Assertion(subject, ImmutableList.of(), ImmutableSet.of()),
+                new Assertion(other, ImmutableList.of(), ImmutableSet.of())
+        ));
+        messenger.sendMessage(subject, ImmutableList.of(), ImmutableSet.of());
+
+        verify(lookupEntryStore, times(1)).entriesForIds(anyIterableOf(Long.class));
+        verify(sender, times(2)).sendMessage(any(ContentEquivalenceAssertionMessage.class), eq(Longs.toByteArray(1L)));
+        verify(sender).sendMessage(any(ContentEquivalenceAssertionMessage.class), eq(Longs.toByteArray(7L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchSenderGetsOneBatchPerPartitionKey() throws Exception {
+        BatchMessageSender<ContentEquivalenceAssertionMessage> batchSender =
+                (BatchMessageSender<ContentEquivalenceAssertionMessage>) mock(BatchMessageSender.class);
+        ContentEquivalenceAssertionMessenger batchMessenger =
+                ContentEquivalenceAssertionMessenger.create(batchSender, new SystemClock(), lookupEntryStore);
+        when(lookupEntryStore.entriesForIds(anyIterableOf(Long.class))).thenReturn(
+                ImmutableList.of(entryInGraph(subject, lowest), entryInGraph(lowest, subject), entryInGraph(other))
+        );
+
+        batchMessenger.sendMessages(ImmutableList.of(
+                new Assertion(subject, ImmutableList.of(), ImmutableSet.of()),
+                new Assertion(other, ImmutableList.of(), ImmutableSet.of()),
+                new Assertion(lowest, ImmutableList.of(), ImmutableSet.of())
+        ));
+
+        ArgumentCaptor<List> graphBatch = ArgumentCaptor.forClass(List.class);
+        verify(batchSender).sendMessages(graphBatch.capture(), eq(Longs.toByteArray(1L)));
+        assertThat(graphBatch.getValue().size(), is(2));
+        ContentEquivalenceAssertionMessage first =
+                (ContentEquivalenceAssertionMessage) graphBatch.getValue().get(0);
+        assertThat(first.getEntityId(), is(codec.encode(BigInteger.valueOf(subject.getId()))));
+
+        ArgumentCaptor<List> otherBatch = ArgumentCaptor.forClass(List.class);
+        verify(batchSender).sendMessages(otherBatch.capture(), eq(Longs.toByteArray(7L)));
+        assertThat(otherBatch.getValue().size(), is(1));
+        verify(batchSender, never()).sendMessage(any(ContentEquivalenceAssertionMessage.class), any(byte[].class));
+    }
+
+    private LookupEntry entryInGraph(Item subject, Item... equivalents) {
+        ImmutableSet.Builder<LookupRef> refs = ImmutableSet.<LookupRef>builder().add(LookupRef.from(subject));
+        for (Item equivalent : equivalents) {
+            refs.add(LookupRef.from(equivalent));
+        }
+        return LookupEntry.lookupEntryFrom(subject).copyWithEquivalents(refs.build());
+    }
+
+    private Item item(Long id, String uri) {
+        Item item = new Item(uri, uri, Publisher.BBC);
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,121 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
+import com.metabroadcast.common.persistence.MongoTestHelper;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.metabroadcast.common.time.Timestamp;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+public class MongoOutboxMessageSenderTest {
+
+    private final DatabasedMongo mongo = MongoTestHelper.anEmptyTestDatabase();
+    private final DBCollection outbox = mongo.collection("outbox");
+    private final DBCollection deadLetters = mongo.collection("deadLetters");
+    private final RecordingSender<EntityUpdatedMessage> broker = new RecordingSender<>();
+    private final MongoOutboxMessageSender<EntityUpdatedMessage> sender = new MongoOutboxMessageSender<>(
+            outbox, deadLetters, "changes", JacksonMessageSerializer.forType(EntityUpdatedMessage.class),
+            broker, Duration.standardSeconds(1), 10, 3);
+
+    @Test
+    public void testMessagesAreOnlySentWhenDrained() throws Exception {
+        sender.sendMessage(message("a1"), Longs.toByteArray(1));
+        sender.sendMessage(message("b1"), Longs.toByteArray(2));
+
+        assertThat(broker.sent.isEmpty(), is(true));
+        assertThat(outbox.count(), is(2L));
+
+        sender.drain();
+
+        assertThat(broker.sentIds(), contains("a1", "b1"));
+        assertThat(outbox.count(), is(0L));
+    }
+
+    @Test
+    public void testBrokerOutageKeepsTheWholeOutboxInOrder() throws Exception {
+        sender.sendMessage(message("a1"), Longs.toByteArray(1));
+        sender.sendMessage(message("b1"), Longs.toByteArray(2));
+        sender.sendMessage(message("a2"), Longs.toByteArray(1));
+
+        broker.failing.addAll(ImmutableList.of("a1", "b1", "a2"));
+        for (int i = 0; i < 10; i++) {
+            sender.drain();
+        }
+
+        assertThat(broker.sent.isEmpty(), is(true));
+        assertThat(outbox.count(), is(3L));
+        assertThat(deadLetters.count(), is(0L));
+
+        broker.failing.clear();
+        sender.drain();
+
+        assertThat(broker.sentIds(), contains("a1", "b1", "a2"));
+        assertThat(outbox.count(), is(0L));
+    }
+
+    @Test
+    public void testBrokerFailureStopsTheDrainAtThatMessage() throws Exception {
+        sender.sendMessage(message("a1"), Longs.toByteArray(1));
+        sender.sendMessage(message("b1"), Longs.toByteArray(2));
+        sender.sendMessage(message("c1"), Longs.toByteArray(3));
+
+        broker.failing.add("b1");
+        sender.drain();
+
+        assertThat(broker.sentIds(), contains("a1"));
+        assertThat(outbox.count(), is(2L));
+    }
+
+    @Test
+    public void testUnreadableMessageHoldsBackLaterMessagesForThatKeyOnly() throws Exception {
+        sender.sendMessage(message("a1"), Longs.toByteArray(1));
+        sender.sendMessage(message("b1"), Longs.toByteArray(2));
+        sender.sendMessage(message("a2"), Longs.toByteArray(1));
+
+        corruptOldest();
+        sender.drain();
+
+        assertThat(broker.sentIds(), contains("b1"));
+        assertThat(outbox.count(), is(2L));
+    }
+
+    @Test
+    public void testUnreadableMessageIsDeadLetteredAfterMaxAttempts() throws Exception {
+        sender.sendMessage(message("a1"), Longs.toByteArray(1));
+        sender.sendMessage(message("a2"), Longs.toByteArray(1));
+
+        corruptOldest();
+        sender.drain();
+        sender.drain();
+
+        assertThat(broker.sent.isEmpty(), is(true));
+        assertThat(deadLetters.count(), is(0L));
+
+        sender.drain();
+
+        assertThat(broker.sentIds(), contains("a2"));
+        assertThat(outbox.count(), is(0L));
+        assertThat(deadLetters.count(), is(1L));
+        assertThat(deadLetters.findOne().get(MongoOutboxMessageSender.ATTEMPTS), is((Object) 3));
+    }
+
+    private void corruptOldest() {
+        DBObject oldest = outbox.find().sort(new BasicDBObject(MongoConstants.ID, 1)).next();
+        oldest.put(MongoOutboxMessageSender.MESSAGE, "{".getBytes());
+        outbox.save(oldest);
+    }
+
+    private EntityUpdatedMessage message(String id) {
+        return new EntityUpdatedMessage(id, Timestamp.of(1L), "cbbh", "item", "bbc.co.uk");
+    }
+}
@@ -0,0 +1,131 @@
+package org.atlasapi.messaging.v3;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import com.google.common.primitives.Longs;
+import com.metabroadcast.common.queue.MessagingException;
+import com.metabroadcast.common.time.Timestamp;
+
+public class PriorityLaneMessageSenderTest {
+
+    private final RecordingSender<EntityUpdatedMessage> live = new RecordingSender<>();
+    private final RecordingSender<EntityUpdatedMessage> bulk = new RecordingSender<>();
+    private final PriorityLaneMessageSender<EntityUpdatedMessage> sender =
+            new PriorityLaneMessageSender<>(live, 10, bulk, 10, 1);
+
+    @Test
+    public void testLiveMessagesAreSentBeforeWaitingBulkMessages() throws Exception {
+        MessagePriority.callAs(MessagePriority.BULK, () -> {
+            sender.sendMessage(message("b1"));
+            sender.sendMessage(message("b2"));
+            return null;
+        });
+        sender.sendMessage(message("l1"));
+
+        assertThat(sender.depth(MessagePriority.BULK), is(2));
+        assertThat(sender.depth(MessagePriority.LIVE), is(1));
+
+        sender.dispatch();
+        assertThat(live.sentIds(), contains("l1"));
+        assertThat(bulk.sent.isEmpty(), is(true));
+
+        sender.dispatch();
+        sender.dispatch();
+        assertThat(bulk.sentIds(), contains("b1", "b2"));
+        assertThat(sender.depth(MessagePriority.BULK), is(0));
+    }
+
+    @Test
+    public void testPriorityIsRestoredAfterBulkWork() throws Exception {
+        MessagePriority.runAs(MessagePriority.BULK,
+                () -> assertThat(MessagePriority.current(), is(MessagePriority.BULK)));
+
+        assertThat(MessagePriority.current(), is(MessagePriority.LIVE));
+    }
+
+    @Test
+    public void testCloseSendsBufferedMessages() throws Exception {
+        sender.sendMessage(message("l1"));
+        MessagePriority.callAs(MessagePriority.BULK, () -> {
+            sender.sendMessage(message("b1"));
+            return null;
+        });
+
+        sender.close();
+
+        assertThat(live.sentIds(), contains("l1"));
+        assertThat(bulk.sentIds(), contains("b1"));
+    }
+
+    @Test(expected = MessagingException.class)
+    public void testSendingAfterCloseIsRejected() throws Exception {
+        sender.close();
+
+        sender.sendMessage(message("l1"));
+    }
+
+    @Test
+    public void testMessagesForOneKeyShareADispatcher() throws Exception {
+        PriorityLaneMessageSender<EntityUpdatedMessage> striped =
+                new PriorityLaneMessageSender<>(live, 10, bulk, 10, 4);
+        for (int i = 0; i < 3; i++) {
+            striped.sendMessage(message("l" + i), Longs.toByteArray(1));
+        }
+
+        striped.dispatch();
+        assertThat(live.sentIds(), contains("l0"));
+
+        striped.dispatch();
+        striped.dispatch();
+        assertThat(live.sentIds(), contains("l0", "l1", "l2"));
+    }
+
+    @Test
+    public void testLiveMessageWaitsBehindBulkMessagesForTheSameKey() throws Exception {
+        MessagePriority.callAs(MessagePriority.BULK, () -> {
+            sender.sendMessage(message("b1"), Longs.toByteArray(1));
+            return null;
+        });
+        sender.sendMessage(message("l1"), Longs.toByteArray(1));
+        sender.sendMessage(message("l2"), Longs.toByteArray(2));
+
+        sender.dispatch();
+        assertThat(live.sentIds(), contains("l2"));
+
+        sender.dispatch();
+        sender.dispatch();
+        assertThat(bulk.sentIds(), contains("b1", "l1"));
+
+        sender.sendMessage(message("l3"), Longs.toByteArray(1));
+        assertThat(sender.depth(MessagePriority.LIVE), is(1));
+    }
+
+    @Test
+    public void testCoalescedBulkMessagesKeepTheirLaneWhenSentFromAnotherThread()
+            throws Exception {
+        SettableTicker ticker = new SettableTicker();
+        CoalescingEntityUpdatedMessageSender coalescing = new CoalescingEntityUpdatedMessageSender(
+                sender, Duration.standardMinutes(1), Duration.standardMinutes(1), ticker);
+        MessagePriority.callAs(MessagePriority.BULK, () -> {
+            coalescing.sendMessage(message("b1"));
+            return null;
+        });
+
+        ticker.advance(1, TimeUnit.MINUTES);
+        coalescing.sendDue();
+
+        assertThat(sender.depth(MessagePriority.BULK), is(1));
+        assertThat(sender.depth(MessagePriority.LIVE), is(0));
+    }
+
+    private EntityUpdatedMessage message(String id) {
+        return new EntityUpdatedMessage(id, Timestamp.of(1L), "cbbh", "item", "bbc.co.uk");
+    }
+}
@@ -0,0 +1,45 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.metabroadcast.common.queue.Message;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessagingException;
+
+/**
+ * Records the messages sent through it, failing those whose ids are in
+ * {@link #failing}.
+ */
+class RecordingSender<M extends Message> implements MessageSender<M> {
+
+    final List<M> sent = Collections.synchronizedList(Lists.<M>newArrayList());
+    final Set<String> failing = Sets.newConcurrentHashSet();
+
+    @Override
+    public void sendMessage(M message) throws MessagingException {
+        if (failing.contains(message.getMessageId())) {
+            throw new MessagingException("unavailable");
+        }
+        sent.add(message);
+    }
+
+    @Override
+    public void sendMessage(M message, byte[] partitionKey) throws MessagingException {
+        sendMessage(message);
+    }
+
+    List<String> sentIds() {
+        synchronized (sent) {
+            return ImmutableList.copyOf(Lists.transform(sent, Message::getMessageId));
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+}
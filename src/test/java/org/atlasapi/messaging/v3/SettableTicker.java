@@ -0,0 +1,22 @@
+package org.atlasapi.messaging.v3;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+
+/**
+ * A {@link Ticker} which only moves when a test advances it.
+ */
+class SettableTicker extends Ticker {
+
+    private volatile long nanos = 0;
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+
+    void advance(long time, TimeUnit unit) {
+        nanos += unit.toNanos(time);
+    }
+}
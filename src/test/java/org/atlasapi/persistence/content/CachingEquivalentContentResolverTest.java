@@ -0,0 +1,135 @@
+package org.atlasapi.persistence.content;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.entity.Content;
+import org.atlasapi.media.entity.Episode;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.output.Annotation;
+import org.atlasapi.persistence.content.ContentListener.ChangeType;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.metabroadcast.applications.client.model.internal.Application;
+import com.metabroadcast.applications.client.model.internal.ApplicationConfiguration;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingEquivalentContentResolverTest {
+
+    private final EquivalentContentResolver delegate = mock(EquivalentContentResolver.class);
+    private final Application bbcThenPa = application(Publisher.BBC, Publisher.PA);
+    private final Application paThenBbc = application(Publisher.PA, Publisher.BBC);
+    private final Set<Annotation> annotations = Annotation.defaultAnnotations();
+    private final Set<String> uris = ImmutableSet.of("subject");
+
+    private CachingEquivalentContentResolver resolver;
+    private EquivalentContent resolved;
+
+    @Before
+    public void setUp() {
+        resolver = new CachingEquivalentContentResolver(delegate, 100, 1, TimeUnit.MINUTES);
+        Episode subject = new Episode("subject", "subject", Publisher.BBC);
+        subject.setTitle("subject");
+        resolved = EquivalentContent.builder().putEquivalents("subject", ImmutableList.<Content>of(subject)).build();
+        when(delegate.resolveUris(eq(uris), any(Application.class),
+                anySetOf(Annotation.class), anyBoolean())).thenReturn(resolved);
+    }
+
+    @Test
+    public void testRepeatedResolutionIsServedFromCache() {
+        assertSame(resolved, resolver.resolveUris(uris, bbcThenPa, annotations, false));
+        EquivalentContent cached = resolver.resolveUris(uris, bbcThenPa, annotations, false);
+
+        verify(delegate, times(1)).resolveUris(uris, bbcThenPa, annotations, false);
+        assertThat(subjectOf(cached).getCanonicalUri(), is("subject"));
+    }
+
+    @Test
+    public void testCallersAreGivenTheirOwnCopies() {
+        subjectOf(resolver.resolveUris(uris, bbcThenPa, annotations, false)).setTitle("changed");
+        EquivalentContent first = resolver.resolveUris(uris, bbcThenPa, annotations, false);
+        subjectOf(first).setTitle("changed again");
+        EquivalentContent second = resolver.resolveUris(uris, bbcThenPa, annotations, false);
+
+        assertThat(subjectOf(second).getTitle(), is("subject"));
+        assertNotSame(subjectOf(first), subjectOf(second));
+    }
+
+    @Test
+    public void testDifferentPrecedenceIsResolvedSeparately() {
+        resolver.resolveUris(uris, bbcThenPa, annotations, false);
+        resolver.resolveUris(uris, paThenBbc, annotations, false);
+
+        verify(delegate, times(1)).resolveUris(uris, bbcThenPa, annotations, false);
+        verify(delegate, times(1)).resolveUris(uris, paThenBbc, annotations, false);
+    }
+
+    @Test
+    public void testWriteOfResolvedContentInvalidates() {
+        resolver.resolveUris(uris, bbcThenPa, annotations, false);
+        resolver.itemChanged(
+                ImmutableList.<Item>of(new Episode("subject", "subject", Publisher.BBC)),
+                ChangeType.CONTENT_UPDATE
+        );
+        resolver.resolveUris(uris, bbcThenPa, annotations, false);
+
+        verify(delegate, times(2)).resolveUris(uris, bbcThenPa, annotations, false);
+    }
+
+    @Test
+    public void testWriteDuringResolutionOnlyStopsCachingOfResolutionsInvolvingIt() {
+        Set<String> other = ImmutableSet.of("other");
+        EquivalentContent otherResolved = EquivalentContent.builder()
+                .putEquivalents("other", ImmutableList.<Content>of(new Episode("other", "other", Publisher.BBC)))
+                .build();
+        when(delegate.resolveUris(eq(other), any(Application.class),
+                anySetOf(Annotation.class), anyBoolean())).thenAnswer(invocation -> {
+                    resolver.invalidate(ImmutableList.of("unrelated"));
+                    return otherResolved;
+                });
+        when(delegate.resolveUris(eq(uris), any(Application.class),
+                anySetOf(Annotation.class), anyBoolean())).thenAnswer(invocation -> {
+                    resolver.invalidate(uris);
+                    return resolved;
+                });
+
+        resolver.resolveUris(other, bbcThenPa, annotations, false);
+        resolver.resolveUris(other, bbcThenPa, annotations, false);
+        resolver.resolveUris(uris, bbcThenPa, annotations, false);
+        resolver.resolveUris(uris, bbcThenPa, annotations, false);
+
+        verify(delegate, times(1)).resolveUris(other, bbcThenPa, annotations, false);
+        verify(delegate, times(2)).resolveUris(uris, bbcThenPa, annotations, false);
+    }
+
+    private Content subjectOf(EquivalentContent content) {
+        return Iterables.getOnlyElement(content.asMap().get("subject"));
+    }
+
+    private Application application(Publisher... sources) {
+        Application application = mock(Application.class);
+        when(application.getConfiguration()).thenReturn(ApplicationConfiguration.builder()
+                .withPrecedence(Arrays.asList(sources))
+                .withEnabledWriteSources(ImmutableList.of())
+                .build());
+        return application;
+    }
+}
@@ -1,10 +1,16 @@
 package org.atlasapi.persistence.content;
 
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyIterableOf;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import org.atlasapi.equiv.ContentRef;
 import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.LookupRef;
 import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.persistence.lookup.InMemoryLookupEntryStore;
 import org.atlasapi.persistence.lookup.LookupWriter;
@@ -103,4 +109,30 @@ public class EquivalenceWritingContentWriterTest {
         assertTrue(explicit.equivalents().contains(explicitEquiv.lookupRef()));
     }
 
+    @Test
+    public void testUnchangedEquivalencesAreNotWritten() {
+        LookupWriter mockLookupWriter = mock(LookupWriter.class);
+        EquivalenceWritingContentWriter checkingWriter = new EquivalenceWritingContentWriter(
+                delegate, mockLookupWriter, lookupEntryStore, true);
+
+        Item subjectItem = new Item("subjectUri", "curie", Publisher.METABROADCAST);
+        Item equivalentItem = new Item("equivUri", "durie", Publisher.BBC);
+        LookupEntry subject = LookupEntry.lookupEntryFrom(subjectItem);
+        LookupEntry equivalent = LookupEntry.lookupEntryFrom(equivalentItem);
+        lookupEntryStore.store(subject.copyWithExplicitEquivalents(
+                ImmutableSet.of(subject.lookupRef(), equivalent.lookupRef())));
+
+        subjectItem.setEquivalentTo(ImmutableSet.of(equivalent.lookupRef()));
+        checkingWriter.createOrUpdate(subjectItem);
+
+        verify(delegate).createOrUpdate(subjectItem);
+        verify(mockLookupWriter, never()).writeLookup(any(ContentRef.class), anyIterableOf(ContentRef.class), anySetOf(Publisher.class));
+
+        Item otherItem = new Item("otherUri", "eurie", Publisher.BBC);
+        subjectItem.setEquivalentTo(ImmutableSet.of(equivalent.lookupRef(), LookupRef.from(otherItem)));
+        checkingWriter.createOrUpdate(subjectItem);
+
+        verify(mockLookupWriter).writeLookup(any(ContentRef.class), anyIterableOf(ContentRef.class), anySetOf(Publisher.class));
+    }
+
 }
@@ -0,0 +1,88 @@
+package org.atlasapi.persistence.content;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class InFlightRequestsTest {
+
+    private final InFlightRequests<String, Object> inFlight = new InFlightRequests<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneComputation() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        AtomicReference<Future<Object>> follower = new AtomicReference<>();
+        Object result = new Object();
+
+        Object leaderResult = inFlight.execute("key", () -> {
+            computations.incrementAndGet();
+            AtomicReference<Thread> followerThread = new AtomicReference<>();
+            follower.set(executor.submit(() -> {
+                followerThread.set(Thread.currentThread());
+                return inFlight.execute("key", () -> {
+                    computations.incrementAndGet();
+                    return new Object();
+                });
+            }));
+            awaitWaiting(followerThread);
+            return result;
+        });
+
+        assertSame(result, leaderResult);
+        assertSame(result, follower.get().get(5, TimeUnit.SECONDS));
+        assertEquals(1, computations.get());
+        assertEquals(0, inFlight.inFlightCount());
+    }
+
+    @Test
+    public void testSequentialCallersComputeAfresh() {
+        AtomicInteger computations = new AtomicInteger();
+
+        inFlight.execute("key", computations::incrementAndGet);
+        inFlight.execute("key", computations::incrementAndGet);
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void testFailureIsNotRetained() {
+        try {
+            inFlight.execute("key", () -> {
+                throw new IllegalStateException();
+            });
+            fail("expected exception");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(0, inFlight.inFlightCount());
+        assertEquals("ok", inFlight.execute("key", () -> "ok"));
+    }
+
+    private void awaitWaiting(AtomicReference<Thread> thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Thread t = thread.get();
+            if (t != null && t.getState() == Thread.State.WAITING) {
+                return;
+            }
+            Thread.yield();
+        }
+        fail("follower never waited on the in-flight computation");
+    }
+}
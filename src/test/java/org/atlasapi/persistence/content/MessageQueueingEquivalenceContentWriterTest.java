@@ -0,0 +1,94 @@
+package org.atlasapi.persistence.content;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyIterableOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.atlasapi.equiv.ContentRef;
+import org.atlasapi.media.entity.Content;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.messaging.v3.ContentEquivalenceAssertionMessenger;
+import org.atlasapi.messaging.v3.EntityUpdatedMessage;
+import org.atlasapi.persistence.lookup.InMemoryLookupEntryStore;
+import org.atlasapi.persistence.lookup.LookupWriter;
+import org.atlasapi.persistence.lookup.entry.LookupEntry;
+import org.atlasapi.persistence.lookup.entry.LookupEntryStore;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+import com.metabroadcast.common.queue.MessageSender;
+
+public class MessageQueueingEquivalenceContentWriterTest {
+
+    @SuppressWarnings("unchecked")
+    private final MessageSender<EntityUpdatedMessage> sender =
+            (MessageSender<EntityUpdatedMessage>) mock(MessageSender.class);
+    private final ContentEquivalenceAssertionMessenger messenger =
+            mock(ContentEquivalenceAssertionMessenger.class);
+    private final ContentWriter delegate = mock(ContentWriter.class);
+    private final LookupWriter lookupWriter = mock(LookupWriter.class);
+    private final LookupEntryStore lookupEntryStore = spy(new InMemoryLookupEntryStore());
+    private final ContentResolver contentResolver = mock(ContentResolver.class);
+    private final MessageQueueingEquivalenceContentWriter writer = new MessageQueueingEquivalenceContentWriter(
+            messenger,
+            sender,
+            new EquivalenceWritingContentWriter(delegate, lookupWriter, lookupEntryStore, true),
+            contentResolver
+    );
+
+    @Test
+    public void testUnchangedEquivalencesSendEntityUpdateButNoAssertion() throws Exception {
+        Item subjectItem = new Item("subjectUri", "curie", Publisher.METABROADCAST);
+        subjectItem.setId(1225L);
+        subjectItem.setReadHash(null);
+        Item equivalentItem = new Item("equivUri", "durie", Publisher.BBC);
+        LookupEntry subject = LookupEntry.lookupEntryFrom(subjectItem);
+        LookupEntry equivalent = LookupEntry.lookupEntryFrom(equivalentItem);
+        lookupEntryStore.store(subject.copyWithExplicitEquivalents(
+                ImmutableSet.of(subject.lookupRef(), equivalent.lookupRef())));
+        subjectItem.setEquivalentTo(ImmutableSet.of(equivalent.lookupRef()));
+
+        writer.createOrUpdate(subjectItem, null, false);
+
+        verify(delegate).createOrUpdate(subjectItem);
+        verify(lookupEntryStore, times(1)).entriesForCanonicalUris(anyIterableOf(String.class));
+        verify(lookupWriter, never()).writeLookup(any(ContentRef.class),
+                anyIterableOf(ContentRef.class), anySetOf(Publisher.class));
+        verifyZeroInteractions(messenger);
+        verify(sender).sendMessage(any(EntityUpdatedMessage.class), eq(Longs.toByteArray(1225L)));
+    }
+
+    @Test
+    public void testChangedEquivalencesSendAssertionWithEntryAlreadyRead() throws Exception {
+        Item subjectItem = new Item("subjectUri", "curie", Publisher.METABROADCAST);
+        subjectItem.setId(1225L);
+        subjectItem.setReadHash(null);
+        Item equivalentItem = new Item("equivUri", "durie", Publisher.BBC);
+        LookupEntry subject = LookupEntry.lookupEntryFrom(subjectItem);
+        lookupEntryStore.store(subject);
+        subjectItem.setEquivalentTo(ImmutableSet.of(LookupRef.from(equivalentItem)));
+        when(contentResolver.findByUris(anyIterableOf(String.class)))
+                .thenReturn(ResolvedContent.builder().build());
+
+        writer.createOrUpdate(subjectItem, null, false);
+
+        verify(lookupEntryStore, times(1)).entriesForCanonicalUris(anyIterableOf(String.class));
+        verify(lookupWriter).writeLookup(any(ContentRef.class),
+                anyIterableOf(ContentRef.class), anySetOf(Publisher.class));
+        verify(messenger).sendMessage(eq(subjectItem), eq(ImmutableList.<Content>of()),
+                eq(ImmutableSet.of(Publisher.BBC.key())), eq(subject));
+        verify(sender).sendMessage(any(EntityUpdatedMessage.class), eq(Longs.toByteArray(1225L)));
+    }
+}
@@ -0,0 +1,98 @@
+package org.atlasapi.persistence.content.mongo;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.entity.Container;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.content.ContentListener;
+import org.atlasapi.persistence.content.ContentListener.ChangeType;
+import org.atlasapi.persistence.logging.SystemOutAdapterLog;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class AsyncronousContentListenerTest {
+
+    private final CountDownLatch firstCallStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstCall = new CountDownLatch(1);
+    private final CountDownLatch allCallsMade = new CountDownLatch(3);
+    private final List<List<String>> itemCalls = Lists.newCopyOnWriteArrayList();
+    private final List<List<String>> brandCalls = Lists.newCopyOnWriteArrayList();
+
+    private final AsyncronousContentListener listener = new AsyncronousContentListener(
+            new RecordingListener(), new SystemOutAdapterLog(), 1, 10, 3);
+
+    @Test
+    public void testAdjacentChangesOfTheSameKindAreBatched() throws Exception {
+        listener.itemChanged(ImmutableList.of(item("a")), ChangeType.CONTENT_UPDATE);
+        assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        listener.itemChanged(ImmutableList.of(item("b")), ChangeType.CONTENT_UPDATE);
+        listener.itemChanged(ImmutableList.of(item("c")), ChangeType.CONTENT_UPDATE);
+        listener.brandChanged(ImmutableList.of(brand("d")), ChangeType.CONTENT_UPDATE);
+        assertThat(listener.queueDepth(), is(3));
+
+        releaseFirstCall.countDown();
+        assertTrue(allCallsMade.await(5, TimeUnit.SECONDS));
+
+        assertThat(itemCalls, contains(ImmutableList.of("a"), ImmutableList.of("b", "c")));
+        assertThat(brandCalls, contains(ImmutableList.of("d")));
+        listener.shutDown();
+    }
+
+    @Test
+    public void testChangesAfterShutDownAreDropped() throws Exception {
+        listener.shutDown();
+
+        listener.itemChanged(ImmutableList.of(item("a")), ChangeType.CONTENT_UPDATE);
+
+        assertThat(listener.queueDepth(), is(0));
+        assertThat(itemCalls.isEmpty(), is(true));
+    }
+
+    private Item item(String uri) {
+        return new Item(uri, uri, Publisher.BBC);
+    }
+
+    private Container brand(String uri) {
+        return new Container(uri, uri, Publisher.BBC);
+    }
+
+    private class RecordingListener implements ContentListener {
+
+        @Override
+        public void itemChanged(Iterable<? extends Item> items, ChangeType changeType) {
+            List<String> uris = Lists.newArrayList();
+            for (Item item : items) {
+                uris.add(item.getCanonicalUri());
+            }
+            itemCalls.add(uris);
+            firstCallStarted.countDown();
+            try {
+                releaseFirstCall.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            allCallsMade.countDown();
+        }
+
+        @Override
+        public void brandChanged(Iterable<? extends Container> containers, ChangeType changeType) {
+            List<String> uris = Lists.newArrayList();
+            for (Container container : containers) {
+                uris.add(container.getCanonicalUri());
+            }
+            brandCalls.add(uris);
+            allCallsMade.countDown();
+        }
+    }
+}
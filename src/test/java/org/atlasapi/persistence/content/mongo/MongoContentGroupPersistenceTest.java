@@ -25,6 +25,8 @@ import org.atlasapi.persistence.lookup.entry.LookupEntry;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.TimeUnit;
+
 public class MongoContentGroupPersistenceTest {
 
     private static DatabasedMongo MONGO = MongoTestHelper.anEmptyTestDatabase();
@@ -104,4 +106,62 @@ public class MongoContentGroupPersistenceTest {
         Iterable<ContentGroup> results = resolver.findAll();
         assertEquals(2, Iterables.size(results));
     }
+
+    @Test
+    public void testCachedContentGroupIsInvalidatedByWriter() {
+        ContentGroupCache cache = new ContentGroupCache(10, 1, TimeUnit.MINUTES);
+        MongoContentGroupWriter cachingWriter = new MongoContentGroupWriter(MONGO, new NoLoggingPersistenceAuditLog(), new SystemClock(), cache);
+        MongoContentGroupResolver cachingResolver = new MongoContentGroupResolver(MONGO, cache);
+
+        ContentGroup contentGroup = new ContentGroup("group", Publisher.BBC);
+        contentGroup.setTitle("before");
+        cachingWriter.createOrUpdate(contentGroup);
+
+        ContentGroup found = (ContentGroup) cachingResolver.findByIds(ImmutableList.of(contentGroup.getId())).getFirstValue().requireValue();
+        assertEquals("before", found.getTitle());
+        assertNotNull(cache.forId(contentGroup.getId()));
+
+        found.setTitle("after");
+        cachingWriter.createOrUpdate(found);
+
+        found = (ContentGroup) cachingResolver.findByCanonicalUris(ImmutableList.of("group")).getFirstValue().requireValue();
+        assertEquals("after", found.getTitle());
+        assertNotNull(found.getThisOrChildLastUpdated());
+    }
+
+    @Test
+    public void testRewritingStoredContentGroupReplacesIt() {
+        ContentGroup contentGroup = new ContentGroup("group", Publisher.BBC);
+        contentGroup.setTitle("before");
+        writer.createOrUpdate(contentGroup);
+        Long id = contentGroup.getId();
+
+        ContentGroup found = (ContentGroup) resolver.findByIds(ImmutableList.of(id)).getFirstValue().requireValue();
+        found.setTitle("after");
+        writer.createOrUpdate(found);
+
+        assertEquals(1, table.count());
+        assertEquals(id, found.getId());
+        found = (ContentGroup) resolver.findByIds(ImmutableList.of(id)).getFirstValue().requireValue();
+        assertEquals("after", found.getTitle());
+    }
+
+    @Test
+    public void testContentGroupWithUnstoredIdIsGivenNewId() {
+        ContentGroup contentGroup = new ContentGroup("group", Publisher.BBC);
+        contentGroup.setId(Long.MAX_VALUE);
+
+        writer.createOrUpdate(contentGroup);
+
+        assertFalse(Long.valueOf(Long.MAX_VALUE).equals(contentGroup.getId()));
+        assertEquals(1, table.count());
+        ContentGroup found = (ContentGroup) resolver.findByIds(ImmutableList.of(contentGroup.getId())).getFirstValue().requireValue();
+        assertEquals("group", found.getCanonicalUri());
+
+        found.setTitle("title");
+        writer.createOrUpdate(found);
+
+        assertEquals(contentGroup.getId(), found.getId());
+        assertEquals(1, table.count());
+    }
 }
@@ -0,0 +1,114 @@
+package org.atlasapi.persistence.content.mongo;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.atlasapi.media.entity.Content;
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.LookupRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.audit.NoLoggingPersistenceAuditLog;
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.lookup.NewLookupWriter;
+import org.atlasapi.persistence.media.entity.ContentTranslator;
+import org.atlasapi.persistence.lookup.mongo.MongoLookupEntryStore;
+import org.atlasapi.persistence.player.PlayerResolver;
+import org.atlasapi.persistence.service.ServiceResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.metabroadcast.common.persistence.MongoTestHelper;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.persistence.mongo.MongoConstants;
+import com.metabroadcast.common.query.Selection;
+import com.metabroadcast.common.time.SystemClock;
+import com.mongodb.BasicDBObject;
+import com.mongodb.ReadPreference;
+
+public class MongoContentResolverTest {
+
+    private final NewLookupWriter lookupWriter = new NewLookupWriter() {
+        @Override
+        public void ensureLookup(Content described) {
+        }
+    };
+
+    private DatabasedMongo mongo;
+    private MongoContentWriter writer;
+    private MongoContentResolver resolver;
+
+    @Before
+    public void setUp() {
+        mongo = MongoTestHelper.anEmptyTestDatabase();
+        writer = new MongoContentWriter(mongo, lookupWriter, new NoLoggingPersistenceAuditLog(),
+                mock(PlayerResolver.class), mock(ServiceResolver.class), new SystemClock());
+        resolver = new MongoContentResolver(mongo, new MongoLookupEntryStore(
+                mongo.collection("lookup"), new NoLoggingPersistenceAuditLog(), ReadPreference.primary()));
+    }
+
+    @Test
+    public void testFindsContentByNormalisedTitleInIdOrder() {
+        Item second = item("second", 2L, Publisher.BBC, "Tom & Jerry");
+        Item first = item("first", 1L, Publisher.BBC, "TOM JERRY!");
+        Item otherTitle = item("other", 3L, Publisher.BBC, "Tom and Jerry");
+        Item otherSource = item("source", 4L, Publisher.C4, "Tom & Jerry");
+        for (Item item : Lists.newArrayList(second, first, otherTitle, otherSource)) {
+            writer.createOrUpdate(item);
+        }
+
+        List<LookupRef> refs = resolver.findByNormalisedTitle(Publisher.BBC, "tom  jerry",
+                ContentCategory.TOP_LEVEL_ITEM, new Selection(0, 10));
+
+        assertThat(refs, contains(LookupRef.from(first), LookupRef.from(second)));
+    }
+
+    @Test
+    public void testPagesThroughMatches() {
+        writer.createOrUpdate(item("first", 1L, Publisher.BBC, "Tom & Jerry"));
+        Item second = item("second", 2L, Publisher.BBC, "Tom & Jerry");
+        writer.createOrUpdate(second);
+
+        List<LookupRef> refs = resolver.findByNormalisedTitle(Publisher.BBC, "Tom & Jerry",
+                ContentCategory.TOP_LEVEL_ITEM, new Selection(1, 1));
+
+        assertThat(refs, contains(LookupRef.from(second)));
+    }
+
+    @Test
+    public void testTitleWithNothingToMatchFindsNothing() {
+        writer.createOrUpdate(item("first", 1L, Publisher.BBC, "Tom & Jerry"));
+
+        assertThat(resolver.findByNormalisedTitle(Publisher.BBC, "...",
+                ContentCategory.TOP_LEVEL_ITEM, new Selection(0, 10)), empty());
+    }
+
+    @Test
+    public void testFindsContentWrittenBeforeNormalisedTitlesOnceBackfilled() {
+        Item item = item("first", 1L, Publisher.BBC, "Tom & Jerry");
+        writer.createOrUpdate(item);
+        mongo.collection(ContentCategory.TOP_LEVEL_ITEM.tableName()).update(
+                new BasicDBObject(MongoConstants.ID, "first"),
+                new BasicDBObject(MongoConstants.UNSET,
+                        new BasicDBObject(ContentTranslator.NORMALISED_TITLE_KEY, 1))
+        );
+        assertThat(resolver.findByNormalisedTitle(Publisher.BBC, "Tom & Jerry",
+                ContentCategory.TOP_LEVEL_ITEM, new Selection(0, 10)), empty());
+
+        new NormalisedTitleBackfill(mongo).run();
+
+        assertThat(resolver.findByNormalisedTitle(Publisher.BBC, "Tom & Jerry",
+                ContentCategory.TOP_LEVEL_ITEM, new Selection(0, 10)), contains(LookupRef.from(item)));
+    }
+
+    private Item item(String uri, long id, Publisher publisher, String title) {
+        Item item = new Item(uri, uri, publisher);
+        item.setId(id);
+        item.setTitle(title);
+        return item;
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.metabroadcast.applications.client.model.internal.Application;
@@ -53,6 +54,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -177,15 +179,16 @@ public class MongoScheduleStoreTest {
 
         @Override
         public void sendMessage(ScheduleUpdateMessage message) throws MessagingException {
-            
+            scheduleUpdatesSent.incrementAndGet();
         }
 
         @Override
         public void sendMessage(ScheduleUpdateMessage scheduleUpdateMessage, byte[] bytes)
                 throws MessagingException {
-
+            scheduleUpdatesSent.incrementAndGet();
         }
     };
+    private final AtomicInteger scheduleUpdatesSent = new AtomicInteger();
 
     private Application application = mock(Application.class);
     
@@ -397,6 +400,51 @@ public class MongoScheduleStoreTest {
         
     }
 
+    @Test
+    public void shouldNotRewriteOrMessageUnchangedScheduleBlock() throws Exception {
+        Channel_4_HD.setId(1234L);
+
+        DateTime broadcast1Start = now.withMinuteOfHour(20);
+        DateTime broadcast1End = broadcast1Start.plusMinutes(30);
+        Broadcast b1 = new Broadcast(Channel_4_HD.getUri(), broadcast1Start, broadcast1End);
+        Broadcast b2 = new Broadcast(Channel_4_HD.getUri(), broadcast1End, broadcast1End.plusMinutes(45));
+
+        List<ItemRefAndBroadcast> itemsAndBroadcasts = ImmutableList.of(
+                new ItemRefAndBroadcast(item1, b1),
+                new ItemRefAndBroadcast(item2, b2)
+        );
+
+        store.replaceScheduleBlock(Publisher.BBC, Channel_4_HD, itemsAndBroadcasts);
+        assertEquals(1, scheduleUpdatesSent.get());
+
+        store.replaceScheduleBlock(Publisher.BBC, Channel_4_HD, itemsAndBroadcasts);
+        assertEquals(1, scheduleUpdatesSent.get());
+
+        store.replaceScheduleBlock(Publisher.BBC, Channel_4_HD, ImmutableList.of(
+                new ItemRefAndBroadcast(item3, b1),
+                new ItemRefAndBroadcast(item2, b2)
+        ));
+        assertEquals(2, scheduleUpdatesSent.get());
+    }
+
+    @Test
+    public void shouldSendHeldScheduleUpdatesOnClose() throws Exception {
+        Channel_4_HD.setId(1234L);
+        MongoScheduleStore coalescingStore = new MongoScheduleStore(database,
+                new DummyChannelResolver(ImmutableList.of(Channel_4_HD)), contentResolver,
+                new DummyContentWriter(), equivContentResolver, ms,
+                Duration.standardMinutes(1), Duration.standardMinutes(5));
+
+        DateTime broadcastStart = now.withMinuteOfHour(20);
+        Broadcast b1 = new Broadcast(Channel_4_HD.getUri(), broadcastStart, broadcastStart.plusMinutes(30));
+        coalescingStore.replaceScheduleBlock(Publisher.BBC, Channel_4_HD,
+                ImmutableList.of(new ItemRefAndBroadcast(item1, b1)));
+        assertEquals(0, scheduleUpdatesSent.get());
+
+        coalescingStore.close();
+        assertEquals(1, scheduleUpdatesSent.get());
+    }
+
     @Test
     public void shouldAddScheduleBlock() throws Exception {
         Channel_4_HD.setId(1234L);
@@ -2,6 +2,8 @@ package org.atlasapi.persistence.media.entity;
 
 import static org.atlasapi.persistence.events.EventTranslatorTest.createEvent;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import java.util.List;
 
@@ -12,6 +14,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.metabroadcast.common.ids.NumberToShortStringCodec;
 import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+import com.mongodb.DBObject;
 
 
 public class ContentTranslatorTest {
@@ -47,6 +50,36 @@ public class ContentTranslatorTest {
         assertEquals(event.getPublisher(),translatedEvent.getPublisher());
     }
 
+    @Test
+    public void testNormalisedTitleIsWritten() {
+        Content content = new Item();
+        content.setTitle("  Doctor Who:   The Day of the  Doctor! ");
+
+        DBObject dbo = translator.toDBObject(null, content);
+
+        assertEquals("doctor who the day of the doctor", dbo.get(ContentTranslator.NORMALISED_TITLE_KEY));
+    }
+
+    @Test
+    public void testNormalisedTitleIsNotPartOfTheHash() {
+        Content content = new Item();
+        content.setTitle("Doctor Who");
+
+        DBObject dbo = translator.toDBObject(null, content);
+        translator.removeFieldsForHash(dbo);
+
+        assertFalse(dbo.containsField(ContentTranslator.NORMALISED_TITLE_KEY));
+    }
+
+    @Test
+    public void testNormaliseTitle() {
+        assertEquals("tom jerry", ContentTranslator.normaliseTitle("Tom & Jerry"));
+        assertEquals("its a knockout", ContentTranslator.normaliseTitle("IT'S A KNOCKOUT"));
+        assertEquals("mash", ContentTranslator.normaliseTitle("M*A*S*H"));
+        assertNull(ContentTranslator.normaliseTitle("..."));
+        assertNull(ContentTranslator.normaliseTitle(null));
+    }
+
     private Content createContentWithEventRefs(Iterable<EventRef> events) {
         Content content = new Item();
         content.setDescription("some content");
@@ -21,6 +21,7 @@ import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.media.entity.ReleaseDate;
 import org.atlasapi.media.entity.TopicRef;
 import org.atlasapi.media.entity.Version;
+import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.joda.time.LocalDate;
 
@@ -32,7 +33,9 @@ import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
 import com.metabroadcast.common.intl.Countries;
 import com.metabroadcast.common.persistence.MongoTestHelper;
 import com.metabroadcast.common.persistence.mongo.MongoQueryBuilder;
+import com.metabroadcast.common.persistence.translator.TranslatorUtils;
 import com.metabroadcast.common.time.Clock;
+import com.metabroadcast.common.time.DateTimeZones;
 import com.metabroadcast.common.time.SystemClock;
 import com.mongodb.BasicDBList;
 import com.mongodb.DBCollection;
@@ -303,6 +306,25 @@ public class ItemTranslatorTest extends TestCase {
         assertTimesAreNull(clipDbo);
     }
 
+    public void testRecordsLatestBroadcastEndWithoutChangingHash() {
+        Item item = new Item("canonicalUri", "curie", Publisher.BBC);
+        Version version = new Version();
+        DateTime start = new DateTime(2015, 3, 20, 10, 0, 0, 0, DateTimeZones.UTC);
+        version.addBroadcast(new Broadcast("channel1", start, Duration.standardHours(1)));
+        version.addBroadcast(new Broadcast("channel2", start.plusHours(4), Duration.standardHours(2)));
+        item.addVersion(version);
+
+        DBObject dbo = itemTranslator.toDBObject(null, item);
+
+        assertEquals(start.plusHours(6), TranslatorUtils.toDateTime(dbo, ItemTranslator.LAST_BROADCAST_END));
+
+        DBObject withoutLastEnd = itemTranslator.toDBObject(null, item);
+        withoutLastEnd.removeField(ItemTranslator.LAST_BROADCAST_END);
+        itemTranslator.removeFieldsForHash(dbo);
+        itemTranslator.removeFieldsForHash(withoutLastEnd);
+        assertEquals(withoutLastEnd, dbo);
+    }
+
     @SuppressWarnings("unchecked")
     public void assertTimesAreNull(DBObject dbo) {
         assertNull(dbo.get(DescribedTranslator.LAST_FETCHED_KEY));
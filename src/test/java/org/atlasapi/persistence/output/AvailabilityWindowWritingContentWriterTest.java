@@ -0,0 +1,45 @@
+package org.atlasapi.persistence.output;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.atlasapi.media.entity.Item;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.persistence.content.ContentWriter;
+import org.atlasapi.persistence.media.entity.ItemTranslator;
+import org.junit.Test;
+
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+
+public class AvailabilityWindowWritingContentWriterTest {
+
+    private final ContentWriter delegate = mock(ContentWriter.class);
+    private final MongoAvailabilityWindowStore windowStore = mock(MongoAvailabilityWindowStore.class);
+    private final AvailabilityWindowWritingContentWriter writer =
+            new AvailabilityWindowWritingContentWriter(delegate, windowStore);
+
+    @Test
+    public void testWritesWindowsOfChangedItem() {
+        Item item = new Item("uri", "curie", Publisher.BBC);
+        item.setReadHash(null);
+        when(delegate.createOrUpdate(item)).thenReturn(item);
+
+        writer.createOrUpdate(item);
+
+        verify(windowStore).write(item);
+    }
+
+    @Test
+    public void testKeepsWindowsOfUnchangedItem() {
+        Item item = new Item("uri", "curie", Publisher.BBC);
+        item.setReadHash(new ItemTranslator(new SubstitutionTableNumberCodec()).hashCodeOf(item));
+        when(delegate.createOrUpdate(item)).thenReturn(item);
+
+        writer.createOrUpdate(item);
+
+        verify(delegate).createOrUpdate(item);
+        verify(windowStore, never()).write(item);
+    }
+}
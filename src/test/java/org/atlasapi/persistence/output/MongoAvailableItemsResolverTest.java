@@ -43,6 +43,7 @@ import com.metabroadcast.common.persistence.MongoTestHelper;
 import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
 import com.metabroadcast.common.time.DateTimeZones;
 import com.metabroadcast.common.time.TimeMachine;
+import com.mongodb.DBObject;
 import com.mongodb.ReadPreference;
 
 @RunWith( MockitoJUnitRunner.class )
@@ -119,6 +120,53 @@ public class MongoAvailableItemsResolverTest {
         
     }
 
+    @Test
+    public void testResolvesAvailableItemsFromMaterialisedWindows() {
+        MongoAvailabilityWindowStore windowStore = new MongoAvailabilityWindowStore(mongo);
+        new AvailabilityWindowBackfill(mongo, windowStore, clock).run();
+        assertThat(windowStore.isPopulated(), is(true));
+        MongoAvailableItemsResolver windowedResolver
+            = new MongoAvailableItemsResolver(mongo, lookupStore, clock, windowStore);
+
+        when(application.getConfiguration()).thenReturn(configWithPA);
+
+        clock.jumpTo(dateTime(5));
+        Set<ChildRef> childRefs = ImmutableSet.copyOf(windowedResolver.availableItemsFor(primary, application));
+        assertThat(Iterables.transform(childRefs, ChildRef.TO_URI), hasItems(p1.getCanonicalUri(), p2.getCanonicalUri()));
+        assertThat(childRefs.size(), is(2));
+
+        clock.jumpTo(dateTime(15));
+        childRefs = ImmutableSet.copyOf(windowedResolver.availableItemsFor(primary, application));
+        assertEquals(p2.getCanonicalUri(), Iterables.getOnlyElement(childRefs).getUri());
+    }
+
+    @Test
+    public void testFallsBackToItemDocumentsUntilWindowsAreBackfilled() {
+        MongoAvailabilityWindowStore windowStore = new MongoAvailabilityWindowStore(mongo);
+        MongoAvailableItemsResolver windowedResolver
+            = new MongoAvailableItemsResolver(mongo, lookupStore, clock, windowStore);
+
+        when(application.getConfiguration()).thenReturn(configWithPA);
+        clock.jumpTo(dateTime(5));
+
+        Set<ChildRef> childRefs = ImmutableSet.copyOf(windowedResolver.availableItemsFor(primary, application));
+        assertThat(windowStore.isPopulated(), is(false));
+        assertThat(childRefs.size(), is(2));
+    }
+
+    @Test
+    public void testRewritingAnItemKeepsOnlyItsCurrentWindows() {
+        MongoAvailabilityWindowStore windowStore = new MongoAvailabilityWindowStore(mongo);
+        windowStore.write(p1);
+        windowStore.write(p1);
+        assertThat(mongo.collection(MongoAvailabilityWindowStore.COLLECTION).count(), is(1L));
+
+        windowStore.write(episode("p1", primary, location("p1l2", dateTime(20), dateTime(30))));
+        DBObject window = mongo.collection(MongoAvailabilityWindowStore.COLLECTION).findOne();
+        assertThat(mongo.collection(MongoAvailabilityWindowStore.COLLECTION).count(), is(1L));
+        assertEquals(dateTime(20).toDate(), window.get(MongoAvailabilityWindowStore.START));
+    }
+
     private void writeEquivalences(Episode a, Episode b) {
         LookupEntry aEntry = LookupEntry.lookupEntryFrom(a)
             .copyWithDirectEquivalents(ImmutableSet.of(LookupRef.from(b)))
@@ -0,0 +1,69 @@
+package org.atlasapi.persistence.output;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.media.entity.Brand;
+import org.atlasapi.media.entity.ParentRef;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.media.entity.simple.BrandSummary;
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.content.ContentListener.ChangeType;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+import com.metabroadcast.common.persistence.MongoTestHelper;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+
+public class MongoContainerSummaryResolverTest {
+
+    private final DatabasedMongo mongo = MongoTestHelper.anEmptyTestDatabase();
+    private final DBCollection containers = mongo.collection(ContentCategory.CONTAINER.tableName());
+    private final MongoContainerSummaryResolver resolver = new MongoContainerSummaryResolver(
+            mongo, new SubstitutionTableNumberCodec(), 100, 1, TimeUnit.MINUTES);
+
+    @Test
+    public void testResolvesManyContainersInOneCall() {
+        containers.insert(new BasicDBObject("_id", "brand1").append("title", "One"));
+        containers.insert(new BasicDBObject("_id", "brand2").append("title", "Two"));
+
+        Map<String, BrandSummary> summaries = resolver.summarizeTopLevelContainers(
+                ImmutableList.of(new ParentRef("brand1"), new ParentRef("brand2"), new ParentRef("missing")));
+
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get("brand1").getTitle(), is("One"));
+        assertThat(summaries.get("brand2").getTitle(), is("Two"));
+    }
+
+    @Test
+    public void testServesCachedSummariesUntilContainerIsWritten() {
+        ParentRef ref = new ParentRef("brand");
+        containers.insert(new BasicDBObject("_id", "brand").append("title", "Title"));
+        assertThat(resolver.summarizeTopLevelContainer(ref).get().getTitle(), is("Title"));
+
+        containers.update(new BasicDBObject("_id", "brand"),
+                new BasicDBObject("$set", new BasicDBObject("title", "Changed")));
+        assertThat(resolver.summarizeTopLevelContainer(ref).get().getTitle(), is("Title"));
+
+        resolver.brandChanged(ImmutableList.of(new Brand("brand", "curie", Publisher.BBC)), ChangeType.CONTENT_UPDATE);
+        assertThat(resolver.summarizeTopLevelContainer(ref).get().getTitle(), is("Changed"));
+    }
+
+    @Test
+    public void testMissingContainerIsFoundOnceCreated() {
+        ParentRef ref = new ParentRef("brand");
+        assertFalse(resolver.summarizeTopLevelContainer(ref).isPresent());
+
+        containers.insert(new BasicDBObject("_id", "brand").append("title", "Title"));
+
+        assertTrue(resolver.summarizeTopLevelContainer(ref).isPresent());
+    }
+}
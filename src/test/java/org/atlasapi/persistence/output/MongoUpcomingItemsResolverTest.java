@@ -0,0 +1,132 @@
+package org.atlasapi.persistence.output;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import org.atlasapi.media.entity.Brand;
+import org.atlasapi.media.entity.Broadcast;
+import org.atlasapi.media.entity.ChildRef;
+import org.atlasapi.media.entity.Episode;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.media.entity.Version;
+import org.atlasapi.persistence.audit.NoLoggingPersistenceAuditLog;
+import org.atlasapi.persistence.content.ContentCategory;
+import org.atlasapi.persistence.content.ContentWriter;
+import org.atlasapi.persistence.content.mongo.MongoContentWriter;
+import org.atlasapi.persistence.lookup.mongo.MongoLookupEntryStore;
+import org.atlasapi.persistence.media.entity.ItemTranslator;
+import org.atlasapi.persistence.player.PlayerResolver;
+import org.atlasapi.persistence.service.ServiceResolver;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+import com.metabroadcast.common.persistence.MongoTestHelper;
+import com.metabroadcast.common.persistence.mongo.DatabasedMongo;
+import com.metabroadcast.common.time.DateTimeZones;
+import com.metabroadcast.common.time.TimeMachine;
+import com.mongodb.BasicDBObject;
+import com.mongodb.ReadPreference;
+
+public class MongoUpcomingItemsResolverTest {
+
+    private final DatabasedMongo mongo = MongoTestHelper.anEmptyTestDatabase();
+    private final TimeMachine clock = new TimeMachine();
+    private final MongoLookupEntryStore lookupStore
+        = new MongoLookupEntryStore(mongo.collection("lookup"),
+                new NoLoggingPersistenceAuditLog(), ReadPreference.primary());
+    private final ContentWriter writer = new MongoContentWriter(mongo, lookupStore,
+            new NoLoggingPersistenceAuditLog(), mock(PlayerResolver.class),
+            mock(ServiceResolver.class), clock);
+    private final MongoUpcomingItemsResolver resolver = new MongoUpcomingItemsResolver(mongo, clock);
+
+    private final Brand brand = new Brand("brand", "brand", Publisher.BBC);
+    private final Brand otherBrand = new Brand("otherBrand", "otherBrand", Publisher.BBC);
+
+    @Before
+    public void setUp() {
+        writer.createOrUpdate(brand);
+        writer.createOrUpdate(otherBrand);
+    }
+
+    @Test
+    public void testResolvesOneRefPerItemWithAnUpcomingBroadcast() {
+        writer.createOrUpdate(episode("upcoming", brand, hour(1), hour(5)));
+        writer.createOrUpdate(episode("past", brand, hour(1)));
+        clock.jumpTo(hour(3));
+
+        ChildRef ref = Iterables.getOnlyElement(resolver.upcomingItemsFor(brand));
+
+        assertEquals("upcoming", ref.getUri());
+    }
+
+    @Test
+    public void testFallsBackToBroadcastsForItemsWithoutLastBroadcastEnd() {
+        writer.createOrUpdate(episode("old", brand, hour(5)));
+        mongo.collection(ContentCategory.CHILD_ITEM.tableName()).update(
+                new BasicDBObject("_id", "old"),
+                new BasicDBObject("$unset", new BasicDBObject(ItemTranslator.LAST_BROADCAST_END, 1))
+        );
+        clock.jumpTo(hour(3));
+
+        ChildRef ref = Iterables.getOnlyElement(resolver.upcomingItemsFor(brand));
+
+        assertEquals("old", ref.getUri());
+    }
+
+    @Test
+    public void testResolvesItemsWithAndWithoutLastBroadcastEndTogether() {
+        writer.createOrUpdate(episode("old", brand, hour(5)));
+        writer.createOrUpdate(episode("new", brand, hour(6)));
+        mongo.collection(ContentCategory.CHILD_ITEM.tableName()).update(
+                new BasicDBObject("_id", "old"),
+                new BasicDBObject("$unset", new BasicDBObject(ItemTranslator.LAST_BROADCAST_END, 1))
+        );
+        clock.jumpTo(hour(3));
+
+        Multimap<Publisher, ChildRef> upcoming = resolver.upcomingItemsByPublisherFor(brand);
+
+        assertThat(upcoming.get(Publisher.BBC).size(), is(2));
+    }
+
+    @Test
+    public void testResolvesUpcomingItemsOfManyContainersInOneCall() {
+        writer.createOrUpdate(episode("first", brand, hour(5)));
+        writer.createOrUpdate(episode("second", brand, hour(6)));
+        writer.createOrUpdate(episode("past", otherBrand, hour(1)));
+        clock.jumpTo(hour(3));
+
+        Map<String, Multimap<Publisher, ChildRef>> upcoming
+                = resolver.upcomingItemsByPublisherFor(ImmutableList.of(brand, otherBrand));
+
+        assertThat(upcoming.size(), is(1));
+        assertThat(upcoming.get("brand").get(Publisher.BBC).size(), is(2));
+        assertFalse(upcoming.containsKey("otherBrand"));
+        assertTrue(resolver.upcomingItemsByPublisherFor(otherBrand).isEmpty());
+    }
+
+    private Episode episode(String uri, Brand container, DateTime... broadcastStarts) {
+        Episode episode = new Episode(uri, uri, container.getPublisher());
+        episode.setContainer(container);
+        Version version = new Version();
+        for (DateTime start : broadcastStarts) {
+            version.addBroadcast(new Broadcast("channel", start, Duration.standardHours(1)));
+        }
+        episode.addVersion(version);
+        return episode;
+    }
+
+    private DateTime hour(int hour) {
+        return new DateTime(2015, 3, 20, hour, 0, 0, 0, DateTimeZones.UTC);
+    }
+}